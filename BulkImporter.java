@@ -0,0 +1,295 @@
+package enrolmentregister;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+* This class imports a batch file of new enrolments into a course.
+* Rows have the columns of the Student Details file, separated by
+* commas, and the fee column is optional as fees are worked out
+* again. The file is read on the calling thread in batches of
+* lines, and each batch is checked on a worker pool with the rules
+* of StudentValidator. Batches are applied in file order: rejected
+* rows are written to a side file with their line number and reason,
+* and the students of valid rows are kept until the side file is
+* saved, then added to the course together. Only a fixed number of
+* batches of lines are in flight, so apart from the new students
+* memory stays bounded for any file size.
+*/
+
+public class BulkImporter {
+
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final int BATCHES_PER_THREAD = 2;
+    private static final String[] FIELD_NAMES = {"Name", "Date of birth",
+        "Gender", "Study mode", "Year", "Number of modules"};
+    // The header row of the Student Details file, which may be left
+    // out or given without the fee column
+    private static final String HEADER = "Name, Date of Birth, Gender, "
+            + "Study Mode, Year, Num of Modules";
+    private static final String FEE_HEADER = HEADER + ", Fee";
+
+    private final CourseManager course;
+    private final int numOfThreads;
+    private final int batchSize;
+    private final int maxBatchesInFlight;
+
+    /*
+    * Counts of the rows of an import
+    */
+    public static class Result {
+        private final int numImported;
+        private final int numRejected;
+
+        Result(int numImported, int numRejected) {
+            this.numImported = numImported;
+            this.numRejected = numRejected;
+        }
+
+        public int getNumImported() {
+            return numImported;
+        }
+
+        public int getNumRejected() {
+            return numRejected;
+        }
+    }
+
+    public BulkImporter(CourseManager course) {
+        this(course, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkImporter(CourseManager course, int numOfThreads,
+            int batchSize) {
+        this.course = course;
+        this.numOfThreads = Math.max(numOfThreads, 1);
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxBatchesInFlight = this.numOfThreads * BATCHES_PER_THREAD;
+    }
+
+    public Result importFile(String fileName, String rejectsFileName)
+            throws IOException {
+        // Imports every valid row of the file into the course and
+        // writes the rejected rows to the rejects file. No student is
+        // added unless the rejects file is saved
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        ExecutorService pool = Executors.newFixedThreadPool(numOfThreads);
+        Deque<Future<Batch>> inFlight = new ArrayDeque<>();
+        List<Student> students = new ArrayList<>();
+        int numRejected = 0;
+
+        try (BufferedReader reader = new BufferedReader(
+                new FileReader(fileName), 1 << 16);
+                FileTransaction transaction = new FileTransaction()) {
+            Writer rejects = transaction.open(rejectsFileName);
+            long lineNumber = 0;
+            Batch batch = new Batch(1);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(line)) {
+                    batch = new Batch(2); // Skip the header row
+                    continue;
+                }
+                batch.lines.add(line);
+                if (batch.lines.size() == batchSize) {
+                    numRejected += submit(pool, batch, currentYear,
+                            inFlight, rejects, students);
+                    batch = new Batch(lineNumber + 1);
+                }
+            }
+            if (!batch.lines.isEmpty()) {
+                numRejected += submit(pool, batch, currentYear, inFlight,
+                        rejects, students);
+            }
+            while (!inFlight.isEmpty()) {
+                numRejected += apply(await(inFlight.poll()), rejects,
+                        students);
+            }
+            transaction.commit();
+        } finally {
+            pool.shutdownNow();
+        }
+        return new Result(course.addStudents(students), numRejected);
+    }
+
+    private static boolean isHeader(String line) {
+        // Returns true if the line is the header row, with or
+        // without the fee column
+        String trimmed = line.trim();
+        return trimmed.equalsIgnoreCase(HEADER)
+                || trimmed.equalsIgnoreCase(FEE_HEADER);
+    }
+
+    private int submit(ExecutorService pool, Batch batch, int currentYear,
+            Deque<Future<Batch>> inFlight, Writer rejects,
+            List<Student> students) throws IOException {
+        // Waits for the oldest batch if too many are in flight, so
+        // the reader never gets far ahead of the workers. Returns the
+        // number of rows rejected by the batch applied, if any
+        int numRejected = 0;
+        if (inFlight.size() >= maxBatchesInFlight) {
+            numRejected = apply(await(inFlight.poll()), rejects, students);
+        }
+        inFlight.add(pool.submit(() -> check(batch, currentYear)));
+        return numRejected;
+    }
+
+    private int apply(Batch batch, Writer rejects, List<Student> students)
+            throws IOException {
+        // Keeps the valid students of the batch to be added once the
+        // rejects file is saved, writes its rejected rows and returns
+        // how many there were
+        students.addAll(batch.students);
+        for (int i = 0; i < batch.rejectedLines.size(); i++) {
+            rejects.write("Line " + batch.rejectedLines.get(i) + ": "
+                    + batch.reasons.get(i) + ": "
+                    + batch.lines.get((int) (batch.rejectedLines.get(i)
+                    - batch.firstLine)) + "\n");
+        }
+        return batch.rejectedLines.size();
+    }
+
+    private Batch check(Batch batch, int currentYear) throws ParseException {
+        // Checks each line of the batch on a worker thread
+        int[] bounds = new int[FIELD_NAMES.length * 2];
+        for (int i = 0; i < batch.lines.size(); i++) {
+            String line = batch.lines.get(i);
+            if (line.isEmpty()) {
+                continue; // Blank lines are skipped
+            }
+            String reason = checkLine(line, bounds, currentYear);
+            if (reason == null) {
+                batch.students.add(toStudent(line, bounds));
+            } else {
+                batch.rejectedLines.add(batch.firstLine + i);
+                batch.reasons.add(reason);
+            }
+        }
+        return batch;
+    }
+
+    private String checkLine(String line, int[] bounds, int currentYear) {
+        // Finds the start and end of each field, without spaces
+        // around it, and returns why the row is rejected or null if
+        // it is valid
+        int numOfFields = 0;
+        int start = 0;
+        while (numOfFields < FIELD_NAMES.length) {
+            int comma = line.indexOf(',', start);
+            int end = comma < 0 ? line.length() : comma;
+            int fieldStart = start;
+            while (fieldStart < end && line.charAt(fieldStart) == ' ') {
+                fieldStart++;
+            }
+            while (end > fieldStart && line.charAt(end - 1) == ' ') {
+                end--;
+            }
+            bounds[numOfFields * 2] = fieldStart;
+            bounds[numOfFields * 2 + 1] = end;
+            numOfFields++;
+            if (comma < 0) {
+                break;
+            }
+            start = comma + 1;
+        }
+        if (numOfFields < FIELD_NAMES.length) {
+            return "Row has " + numOfFields + " fields instead of "
+                    + FIELD_NAMES.length;
+        }
+        // Only the fee column may follow, and it is not read
+        int extra = 0;
+        for (int i = bounds[bounds.length - 1]; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                extra++;
+            }
+        }
+        if (extra > 1) {
+            return "Row has " + (numOfFields + extra) + " fields instead "
+                    + "of " + FIELD_NAMES.length + ", or "
+                    + (FIELD_NAMES.length + 1) + " with the fee";
+        }
+
+        int[] codes = {
+            StudentValidator.checkName(line, bounds[0], bounds[1]),
+            StudentValidator.checkDOB(line, bounds[2], bounds[3],
+                    currentYear),
+            StudentValidator.checkGender(line, bounds[4], bounds[5]),
+            StudentValidator.checkStudyMode(line, bounds[6], bounds[7]),
+            StudentValidator.checkYear(line, bounds[8], bounds[9]),
+            StudentValidator.checkNumModules(line, bounds[10], bounds[11])
+        };
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != StudentValidator.VALID) {
+                return FIELD_NAMES[i] + ": "
+                        + StudentValidator.describe(codes[i]);
+            }
+        }
+        return null;
+    }
+
+    private Student toStudent(String line, int[] bounds)
+            throws ParseException {
+        // Creates the student of a valid row and works out its fee
+        Student student = new Student();
+        student.setName(StudentValidator.formatName(
+                line.substring(bounds[0], bounds[1])));
+        student.setDOB(DateCodec.parse(line, bounds[2], bounds[3]));
+        student.setGender(Character.toUpperCase(line.charAt(bounds[4]))
+                == 'M' ? "M" : "F");
+        student.setStudyMode(Character.toUpperCase(line.charAt(bounds[6]))
+                == 'F' ? "FT" : "PT");
+        student.setYear(StudentValidator.parseNumber(line, bounds[8],
+                bounds[9]));
+        student.setNumModules(StudentValidator.parseNumber(line,
+                bounds[10], bounds[11]));
+        student.setFee();
+        return student;
+    }
+
+    private Batch await(Future<Batch> batch) throws IOException {
+        // Returns the checked batch, throwing the error it failed with
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing students", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error importing students", cause);
+        }
+    }
+
+    /*
+    * Lines of the file checked together, with the students made
+    * from the valid lines and the line numbers and reasons of the
+    * rejected lines
+    */
+    private static class Batch {
+        private final long firstLine;
+        private final List<String> lines = new ArrayList<>();
+        private final List<Student> students = new ArrayList<>();
+        private final List<Long> rejectedLines = new ArrayList<>();
+        private final List<String> reasons = new ArrayList<>();
+
+        Batch(long firstLine) {
+            this.firstLine = firstLine;
+        }
+    }
+}
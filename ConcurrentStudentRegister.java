@@ -0,0 +1,395 @@
+package enrolmentregister;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/*
+The ConcurrentStudentRegister class is a StudentRegister that
+many threads can use at once
+* Keeps the students in a plain StudentRegister guarded by a
+  StampedLock. The fields of the register it extends are not used
+* Looks up students with an optimistic read that takes no lock,
+  and only takes the read lock if a write happened meanwhile
+* Keeps the name index built after every write, and looks names
+  up without ever building it, so a lookup only ever reads the
+  register
+* Serialises changes to students with the same name through a
+  stripe lock per name, and holds the write lock only for the
+  change to the slots, index and statistics
+* Returns copies of the students array and the statistics, so
+  callers never see them change under them
+* Publishes RegisterSnapshots through an atomic reference, so a
+  report reads the latest snapshot without taking a lock
+*/
+
+public class ConcurrentStudentRegister extends StudentRegister {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final StudentRegister register;
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock[] stripes;
+    private final AtomicReference<RegisterSnapshot> published
+            = new AtomicReference<>();
+
+    public ConcurrentStudentRegister() {
+        this(new StudentRegister());
+    }
+
+    public ConcurrentStudentRegister(StudentRegister students) {
+        // Creates a register that holds the students of the given
+        // register, in order
+        super(0);
+        register = new StudentRegister(students.size());
+        for (int i = 0; i < students.end(); i++) {
+            Student student = students.get(i);
+            if (student != null) {
+                register.add(student);
+            }
+        }
+        register.buildIndex();
+        stripes = new ReentrantLock[DEFAULT_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock stripeFor(String name) {
+        // Returns the lock that changes to students with the name
+        // are serialised by. Names that differ only in case share
+        // a stripe, as lookups ignore case
+        int hash = name == null ? 0
+                : StudentNameIndex.normalise(name).hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    public void lockAllStripes() {
+        // Locks every stripe, in order so two threads that lock
+        // all of them cannot deadlock
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    public void unlockAllStripes() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /*
+    * Reads. Each is tried without a lock first, and read again
+    * under the read lock if a write happened while it ran. A read
+    * that overlapped a write can see the register half changed and
+    * fail, so its error is only thrown if the read lock gives it too
+    */
+
+    private int readInt(IntSupplier read) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int value = read.getAsInt();
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // Read again under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read.getAsInt();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T read(Supplier<T> read) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T value = read.get();
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                // Read again under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int indexOf(String name) {
+        // A lookup that overlaps a write can find the index not
+        // built, which fails and is read again under the read lock,
+        // where every write has built it again
+        return readInt(() -> register.builtIndex().firstSlot(name));
+    }
+
+    @Override
+    public int[] indexesOf(String name) {
+        return read(() -> register.builtIndex().allSlots(name));
+    }
+
+    @Override
+    public Student get(int index) {
+        return read(() -> register.get(index));
+    }
+
+    @Override
+    public int size() {
+        return readInt(register::size);
+    }
+
+    @Override
+    public int end() {
+        return readInt(register::end);
+    }
+
+    @Override
+    public int capacity() {
+        return readInt(register::capacity);
+    }
+
+    @Override
+    public int getModCount() {
+        return readInt(register::getModCount);
+    }
+
+    @Override
+    public CourseStatistics getStatistics() {
+        long stamp = lock.readLock();
+        try {
+            return register.getStatistics().copy();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public CourseStatistics getValidStatistics() {
+        long stamp = lock.readLock();
+        try {
+            return register.getValidStatistics().copy();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean checkStatistics() {
+        long stamp = lock.readLock();
+        try {
+            return register.checkStatistics();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public RegisterSnapshot snapshot() {
+        // Returns the published snapshot if the register has not
+        // changed since it was taken. Otherwise one thread takes a
+        // new snapshot under the read lock, which only keeps writers
+        // out while the changed chunks are copied
+        RegisterSnapshot current = published.get();
+        if (current != null && current.getVersion() == getModCount()) {
+            return current;
+        }
+        synchronized (published) {
+            long stamp = lock.readLock();
+            try {
+                current = register.snapshot();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            published.set(current);
+            return current;
+        }
+    }
+
+    /*
+    * Writes
+    */
+
+    @Override
+    public int add(Student student) {
+        // Appends the student while holding the stripe of its name
+        ReentrantLock stripe = stripeFor(student == null ? null
+                : student.getName());
+        stripe.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                int slot = register.add(student);
+                register.buildIndex();
+                return slot;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public Student removeFirst(String name) {
+        // Removes the first student with the name while holding the
+        // stripe of the name
+        ReentrantLock stripe = stripeFor(name);
+        stripe.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                Student removed = register.removeFirst(name);
+                register.buildIndex();
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        long stamp = lock.writeLock();
+        try {
+            register.ensureCapacity(minCapacity);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void set(int index, Student student) {
+        long stamp = lock.writeLock();
+        try {
+            register.set(index, student);
+            register.buildIndex();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Student remove(int index) {
+        long stamp = lock.writeLock();
+        try {
+            Student removed = register.remove(index);
+            register.buildIndex();
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int removeAll(Collection<String> names) {
+        return removeAll(names, student -> { });
+    }
+
+    @Override
+    public int removeAll(Collection<String> names,
+            Consumer<Student> removed) {
+        long stamp = lock.writeLock();
+        try {
+            int numRemoved = register.removeAll(names, removed);
+            register.buildIndex();
+            return numRemoved;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void compact() {
+        long stamp = lock.writeLock();
+        try {
+            register.compact();
+            register.buildIndex();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void reindex() {
+        long stamp = lock.writeLock();
+        try {
+            register.reindex();
+            register.buildIndex();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int recomputeFees(FeeTable table) {
+        // Reprices one chunk of slots per write lock, so readers and
+        // writers get in between chunks instead of waiting for the
+        // whole register. Students moved left by a compaction
+        // between chunks can be passed over, so the register is gone
+        // over again until a pass changes nothing and moves nothing
+        int numChanged = 0;
+        boolean again = true;
+        while (again) {
+            int numInPass = 0;
+            boolean moved = false;
+            int lastEnd = -1;
+            for (int from = 0; ; from += RegisterSnapshot.CHUNK_SIZE) {
+                long stamp = lock.writeLock();
+                try {
+                    int end = register.end();
+                    if (end < lastEnd) {
+                        moved = true;
+                    }
+                    lastEnd = end;
+                    if (from >= end) {
+                        break;
+                    }
+                    numInPass += register.recomputeFees(table, from,
+                            from + RegisterSnapshot.CHUNK_SIZE);
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+            numChanged += numInPass;
+            again = numInPass > 0 || moved;
+        }
+        return numChanged;
+    }
+
+    @Override
+    public void buildIndex() {
+        // The index is always built
+    }
+
+    @Override
+    public Student[] array() {
+        // Returns a compacted copy of the students, as the backing
+        // array changes under any caller that keeps it
+        long stamp = lock.writeLock();
+        try {
+            Student[] students = register.array();
+            register.buildIndex();
+            return Arrays.copyOf(students, register.end());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
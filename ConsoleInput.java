@@ -0,0 +1,31 @@
+package enrolmentregister;
+
+import java.io.InputStream;
+import java.util.Scanner;
+
+/*
+* This class reads lines from System.in through one Scanner that
+* is shared by every prompt, so input read ahead into the buffer
+* of one Scanner is never lost to another. A new Scanner is made
+* if System.in is replaced, as the tests do with System.setIn.
+*/
+
+public class ConsoleInput implements InputSource {
+
+    static final ConsoleInput INSTANCE = new ConsoleInput();
+
+    private InputStream stream;
+    private Scanner scanner;
+
+    private ConsoleInput() {
+    }
+
+    @Override
+    public synchronized String nextLine() {
+        if (scanner == null || stream != System.in) {
+            stream = System.in;
+            scanner = new Scanner(stream);
+        }
+        return scanner.nextLine();
+    }
+}
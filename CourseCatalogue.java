@@ -0,0 +1,518 @@
+package enrolmentregister;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/*
+* This class serves many courses from one process. Each course is
+* a directory under the root directory, named after the course, that
+* holds the files FileIO reads and writes for one course. A course
+* is loaded the first time it is asked for, and the loaded courses
+* are kept in least recently used order. When their estimated size
+* is over the memory budget, the least recently used courses are
+* saved and dropped until it fits again. The course asked for last
+* is never dropped, even if it is over the budget on its own. The
+* courses to drop are picked while holding the catalogue but saved
+* without holding it, so other callers never wait for the disk. Only
+* courses that changed since they were loaded or last saved are
+* saved, and a course that fails to save is kept loaded and tried
+* again the next time courses are dropped. A dropped course is
+* closed to changes, so a caller that kept it is told rather than
+* losing its changes. Callers should ask for a course each time they
+* use it rather than keep it. At startup every course can be loaded
+* at once with loadAll, which reads the courses in parallel and
+* reports the time each took. A course is only ever loaded by
+* one thread at a time, and never while it is being saved.
+*/
+
+public class CourseCatalogue implements Closeable {
+
+    // Heap retained by one loaded student, as measured by
+    // RegisterBenchmark, rounded up
+    public static final long BYTES_PER_STUDENT = 256;
+    // Heap of a course with no students: its register, columns
+    // and journal buffers
+    public static final long BYTES_PER_COURSE = 64 * 1024;
+
+    private final File root;
+    private final long memoryBudget;
+
+    // Loaded courses, least recently used first
+    private final LinkedHashMap<String, LoadedCourse> loaded
+            = new LinkedHashMap<>(16, 0.75f, true);
+    // Loads that have not finished yet, so a course asked for while
+    // it loads waits for that load instead of loading it again
+    private final Map<String, FutureTask<LoadedCourse>> loading
+            = new HashMap<>();
+    // Courses being saved to be dropped, which are not loaded again
+    // until their save has finished
+    private final Map<String, LoadedCourse> dropping = new HashMap<>();
+    private int numOfEvictions;
+    private IOException lastEvictionError;
+
+    /*
+    * A loaded course, the FileIO that saves it and whether it has
+    * changed since it was loaded or last saved
+    */
+    private static class LoadedCourse {
+        private final String courseName;
+        private final CourseManager course;
+        private final FileIO fileIO;
+        private volatile boolean changed = false;
+
+        LoadedCourse(String courseName, CourseManager course,
+                FileIO fileIO) {
+            this.courseName = courseName;
+            this.course = course;
+            this.fileIO = fileIO;
+            course.setChangeListener(numChanged -> changed = true);
+        }
+
+        void save() throws IOException {
+            // Saves the course if it has changed. A change made
+            // while it saves is saved by the next save
+            if (!changed) {
+                return;
+            }
+            changed = false;
+            try {
+                fileIO.writeFiles();
+            } catch (IOException e) {
+                changed = true;
+                throw e;
+            }
+        }
+
+        long estimatedBytes() {
+            return BYTES_PER_COURSE
+                    + BYTES_PER_STUDENT * course.getNumOfStudents();
+        }
+    }
+
+    /*
+    * How loading one course went: the time it took, and the error
+    * it failed with, if any
+    */
+    public static class LoadResult {
+        private final String courseName;
+        private final long loadNanos;
+        private final int numOfStudents;
+        private final Exception error;
+
+        LoadResult(String courseName, long loadNanos, int numOfStudents,
+                Exception error) {
+            this.courseName = courseName;
+            this.loadNanos = loadNanos;
+            this.numOfStudents = numOfStudents;
+            this.error = error;
+        }
+
+        public String getCourseName() {
+            return courseName;
+        }
+
+        public long getLoadMillis() {
+            return loadNanos / 1_000_000;
+        }
+
+        public int getNumOfStudents() {
+            return numOfStudents;
+        }
+
+        public boolean isLoaded() {
+            return error == null;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return courseName + ": failed after " + getLoadMillis()
+                        + " ms: " + error.getMessage();
+            }
+            return courseName + ": " + numOfStudents + " students in "
+                    + getLoadMillis() + " ms";
+        }
+    }
+
+    public CourseCatalogue(File root, long memoryBudget) {
+        this.root = root;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public List<String> getCourseNames() {
+        // Returns the names of every course under the root, loaded
+        // or not, in alphabetical order
+        List<String> names = new ArrayList<>();
+        File[] directories = root.listFiles(File::isDirectory);
+        if (directories != null) {
+            for (File directory : directories) {
+                names.add(directory.getName());
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    public CourseManager getCourse(String courseName)
+            throws IOException, ParseException {
+        // Returns the course, loading its files if it is not
+        // loaded, then drops idle courses if over the budget. The
+        // files are read without holding the catalogue, so other
+        // courses can be used meanwhile. A course that is being
+        // dropped is waited for, then loaded again. A course that
+        // fails to be dropped does not fail this call
+        File directory = courseDirectory(courseName);
+        LoadedCourse entry;
+        FutureTask<LoadedCourse> load = null;
+        boolean loadHere = false;
+        synchronized (this) {
+            while (dropping.containsKey(courseName)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for "
+                            + courseName + " to be saved", e);
+                }
+            }
+            entry = loaded.get(courseName);
+            if (entry == null) {
+                load = loading.get(courseName);
+                if (load == null) {
+                    load = startLoad(courseName, directory);
+                    loadHere = true;
+                }
+            }
+        }
+        if (entry == null) {
+            if (loadHere) {
+                load.run();
+            }
+            try {
+                entry = finishLoad(courseName, load);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof ParseException) {
+                    throw (ParseException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Could not load " + courseName,
+                        cause);
+            }
+        }
+        evictOverBudget();
+        return entry.course;
+    }
+
+    private FutureTask<LoadedCourse> startLoad(String courseName,
+            File directory) {
+        // Records a load of the course that has not run yet. Called
+        // while holding the catalogue
+        FutureTask<LoadedCourse> load = new FutureTask<>(() ->
+                load(courseName, directory));
+        loading.put(courseName, load);
+        return load;
+    }
+
+    private LoadedCourse finishLoad(String courseName,
+            FutureTask<LoadedCourse> load) throws IOException,
+            ExecutionException {
+        // Waits for the load and moves the course it loaded to the
+        // loaded courses. Whichever caller finishes the load first
+        // moves it, and a load that failed is forgotten so the
+        // course can be loaded again
+        try {
+            LoadedCourse entry = load.get();
+            synchronized (this) {
+                if (loading.remove(courseName, load)) {
+                    loaded.put(courseName, entry);
+                }
+            }
+            return entry;
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                loading.remove(courseName, load);
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading "
+                    + courseName, e);
+        }
+    }
+
+    public List<String> findCourseFiles() {
+        // Returns the courses under the root that have a course or
+        // student file to load
+        List<String> names = new ArrayList<>();
+        for (String name : getCourseNames()) {
+            File directory = new File(root, name);
+            if (new File(directory, "CourseDetails.txt").exists()
+                    || new File(directory, "StudentDetails.txt").exists()) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    public List<LoadResult> loadAll(int numOfThreads) throws IOException {
+        // Loads every course with files under the root on a pool of
+        // threads and returns how each load went, in course name
+        // order. Courses already loaded, being loaded by getCourse
+        // or being dropped are left out. A course that fails to load is left unloaded
+        // and does not stop the others. Once all are loaded, idle
+        // courses are dropped if they are over the budget
+        List<String> names = new ArrayList<>();
+        List<FutureTask<LoadedCourse>> loads = new ArrayList<>();
+        List<String> courseFiles = findCourseFiles();
+        synchronized (this) {
+            for (String name : courseFiles) {
+                if (!loaded.containsKey(name)
+                        && !loading.containsKey(name)
+                        && !dropping.containsKey(name)) {
+                    names.add(name);
+                    loads.add(startLoad(name, courseDirectory(name)));
+                }
+            }
+        }
+
+        long[] loadNanos = new long[names.size()];
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(numOfThreads, names.size())));
+        try {
+            for (int i = 0; i < loads.size(); i++) {
+                FutureTask<LoadedCourse> load = loads.get(i);
+                int index = i;
+                pool.execute(() -> {
+                    long start = System.nanoTime();
+                    load.run();
+                    loadNanos[index] = System.nanoTime() - start;
+                });
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<LoadResult> results = new ArrayList<>();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                try {
+                    LoadedCourse entry = finishLoad(name, loads.get(i));
+                    results.add(new LoadResult(name, loadNanos[i],
+                            entry.course.getNumOfStudents(), null));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    results.add(new LoadResult(name, loadNanos[i], 0,
+                            cause instanceof Exception ? (Exception) cause
+                                    : e));
+                }
+            }
+        } catch (InterruptedException e) {
+            // The loads still running finish on their own and are
+            // moved to the loaded courses by the next getCourse
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading courses", e);
+        }
+        evictOverBudget();
+        return results;
+    }
+
+    private LoadedCourse load(String courseName, File directory)
+            throws IOException, ParseException {
+        // Reads the files of the course. A course with no name in
+        // its course file is named after its directory, so loading
+        // never prompts
+        if (!directory.isDirectory()) {
+            throw new IOException("No course named " + courseName
+                    + " in " + root.getPath());
+        }
+        // The course is saved by whichever thread drops it or saves
+        // every course, while callers may be changing it
+        CourseManager course = new CourseManager();
+        course.setConcurrent(true);
+        course.setCourseName(courseName);
+        FileIO fileIO = new FileIO(course, directory);
+        fileIO.readFiles();
+        return new LoadedCourse(courseName, course, fileIO);
+    }
+
+    private File courseDirectory(String courseName) {
+        // Only a plain directory name is a course, so a name cannot
+        // reach outside the root
+        if (courseName == null || courseName.isEmpty()
+                || courseName.equals(".") || courseName.equals("..")
+                || courseName.indexOf('/') >= 0
+                || courseName.indexOf(File.separatorChar) >= 0) {
+            throw new IllegalArgumentException("Invalid course name: "
+                    + courseName);
+        }
+        return new File(root, courseName);
+    }
+
+    private void evictOverBudget() {
+        // Drops the least recently used courses until the loaded
+        // courses fit in the budget. The most recently used course
+        // is last in the map and is always kept. The courses are
+        // picked while holding the catalogue and saved after it is
+        // let go
+        List<LoadedCourse> picked = new ArrayList<>();
+        synchronized (this) {
+            long total = estimatedBytes();
+            Iterator<LoadedCourse> iterator = loaded.values().iterator();
+            while (total > memoryBudget && loaded.size() > 1) {
+                LoadedCourse eldest = iterator.next();
+                total -= eldest.estimatedBytes();
+                iterator.remove();
+                dropping.put(eldest.courseName, eldest);
+                picked.add(eldest);
+            }
+        }
+        for (LoadedCourse entry : picked) {
+            drop(entry);
+        }
+    }
+
+    private void drop(LoadedCourse entry) {
+        // Closes the course, saves it and releases its journal. A
+        // course that cannot be saved is opened again and put back
+        // with the loaded courses, and the error is recorded for
+        // getLastEvictionError, as it is not the fault of the course
+        // that was asked for
+        entry.course.setClosed(true);
+        IOException error = null;
+        try {
+            entry.save();
+        } catch (IOException e) {
+            error = e;
+            entry.course.setClosed(false);
+        }
+        IOException closeError = null;
+        if (error == null) {
+            try {
+                entry.fileIO.closeJournal();
+            } catch (IOException e) {
+                // Every record was already written, so no change is
+                // lost if the journal fails to close
+                closeError = e;
+            }
+        }
+        synchronized (this) {
+            dropping.remove(entry.courseName);
+            if (error == null) {
+                numOfEvictions++;
+                if (closeError != null) {
+                    lastEvictionError = closeError;
+                }
+            } else {
+                loaded.put(entry.courseName, entry);
+                lastEvictionError = error;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            System.out.println("\nWarning: Course " + entry.courseName
+                    + " could not be saved and is kept loaded: "
+                    + error.getMessage());
+        }
+    }
+
+    private static void close(LoadedCourse entry) throws IOException {
+        // Closes the course, saves it if it changed, which also
+        // empties its journal, and releases the journal file
+        entry.course.setClosed(true);
+        try {
+            entry.save();
+        } finally {
+            entry.fileIO.closeJournal();
+        }
+    }
+
+    public synchronized boolean isLoaded(String courseName) {
+        return loaded.containsKey(courseName);
+    }
+
+    public synchronized List<String> getLoadedCourseNames() {
+        // Returns the loaded courses, least recently used first
+        return new ArrayList<>(loaded.keySet());
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return estimatedBytes();
+    }
+
+    private long estimatedBytes() {
+        long total = 0;
+        for (LoadedCourse entry : loaded.values()) {
+            total += entry.estimatedBytes();
+        }
+        return total;
+    }
+
+    public synchronized int getNumOfEvictions() {
+        return numOfEvictions;
+    }
+
+    public synchronized IOException getLastEvictionError() {
+        // Returns the error of the last course that could not be
+        // saved when it was to be dropped, or null if none failed
+        return lastEvictionError;
+    }
+
+    public synchronized void saveAll() throws IOException {
+        // Saves every loaded course that has changed, keeping them
+        // loaded
+        for (LoadedCourse entry : loaded.values()) {
+            entry.save();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // Saves and drops every loaded course. Every course is
+        // tried, and the first error is thrown at the end
+        IOException error = null;
+        for (LoadedCourse entry : loaded.values()) {
+            try {
+                close(entry);
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        loaded.clear();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
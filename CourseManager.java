@@ -1,41 +1,191 @@
 package enrolmentregister;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Objects;
-import java.util.Scanner;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
 
 /*
 The CourseManager class represents a manager for a 
 course and its students
-* Creates array of Student objects of length maxStudents
+* Keeps the students in a growable StudentRegister
 * Sets Course name and Course Details
 * Can Add and Delete Students from array
 * Can search for student in array
-* Creates array of FullTimeStudents and PartTimeStudent objects
+* Groups students by study mode without copying them
 * Gets percentage of genders in each study mode
+* Keeps running counts of students for the report
 * Generates report of CourseManager details
+* Can be shared between threads once set to concurrent, which
+  stores the students in a ConcurrentStudentRegister
 */
 
 public class CourseManager {
     
     private String courseName;
-    private Student[] studentArray;
-    private PartTimeStudent[] partTimeStudents;
-    private FullTimeStudent[] fullTimeStudents;
+    private volatile StudentRegister register = new StudentRegister();
+    private volatile boolean concurrent = false;
     
-    private final Scanner input = new Scanner(System.in);
+    // Told how many students changed after each change, so the
+    // course can be saved in the background
+    private volatile IntConsumer changeListener;
+    // Set once the course is no longer used, such as when a
+    // CourseCatalogue drops it, after which it cannot be changed
+    private volatile boolean closed = false;
+    private StudentJournal journal;
+    
+    // Column store of the register for aggregations, rebuilt when
+    // the register has changed since it was built
+    private StudentColumns columns;
+    private StudentRegister columnsRegister;
+    private int columnsModCount;
+    
+    // The fee table the students were last priced with
+    private FeeTable feeTable = FeeTable.current();
+    
+    // Students grouped by study mode are kept as the indexes of
+    // the students in the grouped array, so no student is copied
+    private Student[] groupedArray = new Student[0];
+    private int[] ftIndexes = new int[0];
+    private int[] ptIndexes = new int[0];
+    private int numOfFTIndexes;
+    private int numOfPTIndexes;
+    
+    // Where the prompts read the user's answers from
+    private InputSource input;
+    private StudentPrompter prompter;
+    
+    public CourseManager() {
+        this(InputSource.console());
+    }
+    
+    public CourseManager(InputSource input) {
+        setInput(input);
+    }
+    
+    public void setInput(InputSource input) {
+        this.input = input;
+        this.prompter = new StudentPrompter(input);
+    }
+    
+    public InputSource getInput() {
+        return input;
+    }
     
     // Sets the student array for the particular course
     public void setStudentArray(Student[] studentArray) {
-        this.studentArray = studentArray;
+        setStudentRegister(StudentRegister.wrap(studentArray));
+    }
+    
+    // Sets the register that stores the students of the course
+    public void setStudentRegister(StudentRegister register) {
+        if (concurrent && !(register instanceof ConcurrentStudentRegister)) {
+            register = new ConcurrentStudentRegister(register);
+        }
+        this.register = register;
+    }
+    
+    public void setConcurrent(boolean concurrent) {
+        // When set, the students are kept in a register that many
+        // threads can add, delete and look up students in at once.
+        // Prompts and reports still read from one thread
+        this.concurrent = concurrent;
+        setStudentRegister(concurrent ? register
+                : StudentRegister.wrap(register.array()));
+    }
+    
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+    
+    public void setChangeListener(IntConsumer changeListener) {
+        this.changeListener = changeListener;
+    }
+    
+    private void changed(int numChanged) {
+        IntConsumer listener = changeListener;
+        if (listener != null && numChanged > 0) {
+            listener.accept(numChanged);
+        }
+    }
+    
+    public void setClosed(boolean closed) {
+        // A closed course rejects adds, deletes and repricing, so a
+        // caller still holding it cannot change it after its final
+        // save. Each change checks this with its name locked, and a
+        // save locks every name, so a change is either in the save
+        // or rejected
+        this.closed = closed;
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Course " + courseName
+                    + " is closed and cannot be changed");
+        }
+    }
+    
+    private ReentrantLock lockName(String name) {
+        // Locks the stripe of the name in a concurrent register, so
+        // changes to students with the name reach the register and
+        // the journal in the same order. Returns null otherwise
+        StudentRegister current = register;
+        if (!(current instanceof ConcurrentStudentRegister)) {
+            return null;
+        }
+        ReentrantLock stripe = ((ConcurrentStudentRegister) current)
+                .stripeFor(name);
+        stripe.lock();
+        return stripe;
+    }
+    
+    private static void unlock(ReentrantLock stripe) {
+        if (stripe != null) {
+            stripe.unlock();
+        }
+    }
+    
+    public void lockAllNames() {
+        // Stops every add and delete until unlockAllNames is called,
+        // so a save sees the register and journal agree
+        StudentRegister current = register;
+        if (current instanceof ConcurrentStudentRegister) {
+            ((ConcurrentStudentRegister) current).lockAllStripes();
+        }
+    }
+    
+    public void unlockAllNames() {
+        StudentRegister current = register;
+        if (current instanceof ConcurrentStudentRegister) {
+            ((ConcurrentStudentRegister) current).unlockAllStripes();
+        }
+    }
+    
+    public StudentRegister getStudentRegister() {
+        return register;
+    }
+    
+    // Sets the journal that records each add and delete so the
+    // change is saved without rewriting the student file
+    public void setJournal(StudentJournal journal) {
+        this.journal = journal;
     }
     
     public void setCourseName(String name) {
         courseName = name;
     }
     
-    public void promptForCourseName(Scanner input){
+    public void promptForCourseName(){
+        promptForCourseName(input);
+    }
+    
+    public void promptForCourseName(InputSource input){
         // If the Course name is not available in text file
         // user is prompted to enter the Course name
         System.out.print("Enter Course Name: ");
@@ -44,15 +194,41 @@ public class CourseManager {
     }
     
     public Student[] getStudentArray(){
-        return studentArray;
+        // Returns the backing array of the register. Slots
+        // after the last student are null
+        return register.array();
     }
     
-    public PartTimeStudent[] getPTStudentArray() {
-        return partTimeStudents;
+    public Student[] getPTStudentArray() {
+        // Returns the part-time students from the last grouping
+        return studentsAt(ptIndexes, numOfPTIndexes);
     }
     
-    public FullTimeStudent[] getFTStudentArray() {
-        return fullTimeStudents;
+    public Student[] getFTStudentArray() {
+        // Returns the full-time students from the last grouping
+        return studentsAt(ftIndexes, numOfFTIndexes);
+    }
+    
+    public int[] getPTStudentIndexes() {
+        // Returns the indexes of the part-time students in the
+        // array given to the last grouping
+        return Arrays.copyOf(ptIndexes, numOfPTIndexes);
+    }
+    
+    public int[] getFTStudentIndexes() {
+        // Returns the indexes of the full-time students in the
+        // array given to the last grouping
+        return Arrays.copyOf(ftIndexes, numOfFTIndexes);
+    }
+    
+    private Student[] studentsAt(int[] indexes, int numOfIndexes) {
+        // Returns the grouped students at the given indexes. The
+        // array holds the same Student objects, not copies
+        Student[] students = new Student[numOfIndexes];
+        for (int i = 0; i < numOfIndexes; i++) {
+            students[i] = groupedArray[indexes[i]];
+        }
+        return students;
     }
     
     public String getCourseName() {
@@ -60,14 +236,20 @@ public class CourseManager {
     }
 
     public void groupStudentsByMode(Student[] studentArray) { 
-        // Populates getPTStudentArray and getFTStudentArray arrays 
-        // with the respective students
+        // Records the indexes of the part-time and full-time
+        // students in the array. The index arrays are reused
+        // between calls and only grow when they are too small
         
-        // Initializes empty lists to store FT and PT students
-        List<FullTimeStudent> ftStudents = new ArrayList<>();
-        List<PartTimeStudent> ptStudents = new ArrayList<>();
+        if (ftIndexes.length < studentArray.length) {
+            ftIndexes = new int[studentArray.length];
+            ptIndexes = new int[studentArray.length];
+        }
+        groupedArray = studentArray;
+        numOfFTIndexes = 0;
+        numOfPTIndexes = 0;
         
-        for (Student student : studentArray) {
+        for (int i = 0; i < studentArray.length; i++) {
+            Student student = studentArray[i];
             if (student == null){
                 continue; // Skip any null values
             }
@@ -77,49 +259,37 @@ public class CourseManager {
                 continue; // Skip any null study modes
             }
             
-            // Add student to appropriate list based on study mode
+            // Add the index of the student to the appropriate
+            // list based on study mode
             switch (studyMode) {
                 case "PT":
-                    ptStudents.add(new PartTimeStudent(student));
+                    ptIndexes[numOfPTIndexes++] = i;
                     break;
                 case "FT":
-                    ftStudents.add(new FullTimeStudent(student));
+                    ftIndexes[numOfFTIndexes++] = i;
                     break;
                 default:
                     break;
             }
         }
-        
-        // Convert the lists to array and assign to class variables
-        partTimeStudents = ptStudents.toArray(new PartTimeStudent[0]);
-        fullTimeStudents = ftStudents.toArray(new FullTimeStudent[0]);
     }
     
     public boolean addStudentPrompt() {
         // This method is invoked when user wants to add a student
         // to the array.
         
-        // Get the next available index in the array 
-        int nextAvailableIndex  = getNumOfStudents(studentArray);
-        
-        // If index is greater than or equal to the 
-        // length of the array, array has no space
-        if (nextAvailableIndex >= studentArray.length) {
-            System.out.println("Cannot Add Student - Enrolment register "
-                    + "has reached full capacity.");
-            return false;
-        }     
         System.out.println("☆☆☆ Adding New Student ☆☆☆\n");
         // Create a new student object
         Student student = createStudentObject();
-        // Add the new student object to the array
-        addStudent(student, nextAvailableIndex );
+        // Add the new student object to the register, which
+        // grows when it has no free slot left
+        int index = addStudent(student);
         
         // Print the details of the new student that has been added
-        printStudentDetails(studentArray[nextAvailableIndex]);
+        printStudentDetails(register.get(index));
         
         // Check if the student details are valid
-        if (!isStudentObjectValid(nextAvailableIndex )) {
+        if (!isStudentObjectValid(index)) {
             System.out.println("\nWarning: Student Details are invalid and " 
                     + "will NOT be saved beyond current session.");
         } else {
@@ -128,10 +298,117 @@ public class CourseManager {
         return true;
     }
 
-    public void addStudent(Student student, int nextAvailableIndex ) {
-        // Adds the given student to the student array
-        // at the specified index 
-        studentArray[nextAvailableIndex] = student;
+    public int addStudent(Student student) {
+        // Appends the given student to the register and
+        // returns the index it was stored at
+        int index;
+        boolean journaled;
+        ReentrantLock stripe = lockName(student.getName());
+        try {
+            checkOpen();
+            index = register.add(student);
+            journaled = record(student, true);
+        } finally {
+            unlock(stripe);
+        }
+        if (journaled) {
+            commitJournal();
+        }
+        changed(1);
+        return index;
+    }
+    
+    public int addStudents(Collection<Student> students) {
+        // Appends the given students to the register in order and
+        // returns the number added. The journal is written to disk
+        // once for all of them
+        register.ensureCapacity(register.end() + students.size());
+        boolean journaled = journal != null;
+        for (Student student : students) {
+            ReentrantLock stripe = lockName(student.getName());
+            try {
+                checkOpen();
+                register.add(student);
+                // After one failed record the rest are saved with the course
+                journaled = journaled && record(student, true);
+            } finally {
+                unlock(stripe);
+            }
+        }
+        if (journaled && !students.isEmpty()) {
+            commitJournal();
+        }
+        changed(students.size());
+        return students.size();
+    }
+    
+    private boolean record(Student student, boolean added) {
+        // Appends an add or delete of the student to the journal.
+        // Returns false if there is no journal or the record could
+        // not be written
+        if (journal == null) {
+            return false;
+        }
+        try {
+            if (added) {
+                journal.recordAdd(student);
+            } else {
+                journal.recordDelete(student);
+            }
+            return true;
+        } catch (IOException e) {
+            printJournalWarning();
+            return false;
+        }
+    }
+    
+    private void commitJournal() {
+        // Writes the journaled records to disk. This is done after
+        // the stripe of the name is unlocked, so other names are
+        // not kept waiting for the disk
+        try {
+            journal.commit();
+        } catch (IOException e) {
+            printJournalWarning();
+        }
+    }
+    
+    public synchronized boolean recomputeFees() {
+        // Reprices every student if the fee rules were reloaded
+        // since the students were last priced, and returns true if
+        // they were repriced
+        FeeTable current = FeeTable.current();
+        if (current == feeTable) {
+            return false;
+        }
+        recomputeFees(current);
+        return true;
+    }
+    
+    public synchronized int recomputeFees(FeeTable table) {
+        // Reprices every student in the register from the fee
+        // table, for when the fee rules change. Students whose fee
+        // changes are replaced, so snapshots taken before keep the
+        // old fees. Columns that were up to date are repriced too
+        // instead of rebuilt. Only the students whose fee changed
+        // count as changed. Returns the number of them
+        checkOpen();
+        boolean columnsCurrent = isColumnsCurrent();
+        int numRepriced = register.recomputeFees(table);
+        if (columnsCurrent) {
+            columns.recomputeFees(table);
+            columnsModCount = register.getModCount();
+        }
+        feeTable = table;
+        changed(numRepriced);
+        return numRepriced;
+    }
+    
+    public int getNumOfStudents() {
+        // Returns the number of students in the register. The
+        // register keeps a running count that is updated on every
+        // add and delete, so this does not scan the array
+        return register.size();
     }
     
     public int getNumOfStudents(Student[] array) {
@@ -148,30 +425,26 @@ public class CourseManager {
     }
 
     private Student createStudentObject() {
-        // Creates and returns a new student object
+        // Creates and returns a new student object with the
+        // details the user enters
         Student student = new Student();
         
-        student.promptForName();
-        student.promptForDOB();
-        student.promptForGender();
-        student.promptForStudyMode();
-        student.promptForYear();
-        student.promptForNumModules();
+        prompter.promptForName(student);
+        prompter.promptForDOB(student);
+        prompter.promptForGender(student);
+        prompter.promptForStudyMode(student);
+        prompter.promptForYear(student);
+        prompter.promptForNumModules(student);
         student.setFee();
 
         return student;
     }
 
-    private boolean isStudentObjectValid(int nextAvailableIndex ) {
+    private boolean isStudentObjectValid(int index) {
         // Checks if the student object at the specified 
         // index only has valid details (not null or 0)
         
-        Student student = studentArray[nextAvailableIndex ];
-        return student.getDOB() != null 
-                && student.getGender() != null 
-                && student.getStudyMode() != null 
-                && student.getYear() != 0 
-                && student.getNumModules() != 0;
+        return register.get(index).hasAllDetails();
     }
 
     public boolean deleteStudentPrompt() {
@@ -179,8 +452,8 @@ public class CourseManager {
         // a student from the array. It gets the name of the
         // student to be deleted.
         
-        // Checks if the array of students is not empty
-        if (checkArrayNotEmpty(studentArray)) {
+        // Checks if the register of students is not empty
+        if (getNumOfStudents() > 0) {
             System.out.println("☆☆☆ Deleting Student ☆☆☆");
             String name;
             
@@ -190,12 +463,10 @@ public class CourseManager {
                 name = input.nextLine().trim();
             } while (isNameInvalid(name));
             
-            // Find the index of the student to delete
-            int indexOfStudent = findStudentIndex(name);
-            
-            // If the student exists, delete the student
-            if (indexOfStudent != -1) {
-                deleteStudent(indexOfStudent);
+            // Delete the first student with the name, if there is
+            // one. Deleting by name locks the name, so a save in the
+            // background never misses the delete
+            if (deleteStudent(name)) {
                 
                 System.out.println("\nStudent deleted successfully.");
                 return true;
@@ -212,35 +483,101 @@ public class CourseManager {
     }
     
     public void deleteStudent(int indexOfStudent) {
-        // Deletes the student at the specified index in the array
-        
-        for (int i = indexOfStudent; i < studentArray.length - 1; i++){
-            // Moves all the students right of the deleted students
-            // to the left in the array
-            studentArray[i] = studentArray[i + 1];
+        // Deletes the student at the specified index in the register.
+        // The slot is left empty and no other student moves until
+        // the register is compacted, which keeps students in order.
+        // Another thread can move students, so threads sharing a
+        // concurrent register delete by name instead. The name is
+        // locked so a save sees the register and journal agree
+        Student student = register.get(indexOfStudent);
+        if (student == null) {
+            return;
+        }
+        boolean removed = false;
+        boolean journaled = false;
+        ReentrantLock stripe = lockName(student.getName());
+        try {
+            checkOpen();
+            // Deleted by another thread before the name was locked
+            if (register.get(indexOfStudent) == student
+                    && register.remove(indexOfStudent) != null) {
+                removed = true;
+                journaled = record(student, false);
+            }
+        } finally {
+            unlock(stripe);
+        }
+        if (journaled) {
+            commitJournal();
         }
-        // Sets the last student in array as null to
-        // avoid storing duplicate values
-        studentArray[studentArray.length - 1] = null; 
+        changed(removed ? 1 : 0);
     }
     
-    public int findStudentIndex(String name) {
-        // Finds the index of the student with the given name
-        int indexOfStudent = -1;
-        
-        for (int i = 0; i < studentArray.length; i++) {
-            if (studentArray[i] != null) {
-                
-                // If student is not null, get name and 
-                // check if both names are equal
-                String studentName = studentArray[i].getName();
-                if (name.equalsIgnoreCase(studentName)) {
-                    indexOfStudent = i;
-                    break;
-                }
+    public boolean deleteStudent(String name) {
+        // Deletes the first student with the given name, ignoring
+        // case, and returns true if there was one. The lookup and
+        // the delete are one step, even with other threads
+        Student student;
+        boolean journaled = false;
+        ReentrantLock stripe = lockName(name);
+        try {
+            checkOpen();
+            student = register.removeFirst(name);
+            if (student != null) {
+                journaled = record(student, false);
             }
+        } finally {
+            unlock(stripe);
+        }
+        if (journaled) {
+            commitJournal();
+        }
+        changed(student == null ? 0 : 1);
+        return student != null;
+    }
+    
+    public int deleteStudents(Collection<String> names) {
+        // Deletes every student whose name matches one of the given
+        // names in a single pass over the register and returns the
+        // number of students deleted
+        if (journal == null) {
+            checkOpen();
+            int numDeleted = register.removeAll(names);
+            changed(numDeleted);
+            return numDeleted;
+        }
+        // Journal every deleted student, then write them to disk
+        // together. Every name is locked, as any name can match
+        boolean[] journaled = {true};
+        int numDeleted;
+        lockAllNames();
+        try {
+            checkOpen();
+            numDeleted = register.removeAll(names, student -> {
+                journaled[0] = journaled[0] && record(student, false);
+            });
+        } finally {
+            unlockAllNames();
         }
-        return indexOfStudent;
+        if (journaled[0]) {
+            commitJournal();
+        }
+        changed(numDeleted);
+        return numDeleted;
+    }
+    
+    private void printJournalWarning() {
+        // The change is still in the register and is saved with
+        // the course the next time it is saved
+        System.out.println("Warning: Change could not be written to "
+                + "the journal and will only be saved with the course.");
+    }
+    
+    public int findStudentIndex(String name) {
+        // Finds the index of the student with the given name,
+        // ignoring case, using the name index of the register.
+        // If several students share the name the first is returned
+        return register.indexOf(name);
     }
 
     private boolean checkArrayNotEmpty(Student[] studentArray) {
@@ -256,11 +593,9 @@ public class CourseManager {
     }
 
     private boolean isNameInvalid(String name) {
-        // Split the name into two parts and checks if each part
-        // only has alphabets in them.
-        String [] parts = name.split(" ");
-        if (parts.length != 2 || !parts[0].matches("[a-zA-Z]+")
-                || !parts[1].matches("[a-zA-Z]+")) {
+        // Checks the name has two parts that only have
+        // alphabets in them.
+        if (StudentValidator.checkName(name) != StudentValidator.VALID) {
             System.out.println("\nInvalid Input.\n");
             return true;
         }
@@ -273,8 +608,8 @@ public class CourseManager {
         boolean found = false;
         String name;
         
-        // Check if the array is not empty
-        if (checkArrayNotEmpty(studentArray)) { 
+        // Check if the register is not empty
+        if (getNumOfStudents() > 0) { 
             System.out.println("☆☆☆ Searching for Student ☆☆☆");
             
             do {
@@ -289,7 +624,7 @@ public class CourseManager {
 
             if (indexOfStudent != -1) { 
                 // if the index of the student is found print details
-                printStudentDetails(studentArray[indexOfStudent]);
+                printStudentDetails(register.get(indexOfStudent));
                 found = true;
             } else {
                 System.out.println("\nStudent not found.");
@@ -343,6 +678,34 @@ public class CourseManager {
                 ,studyMode, year, modules, fee);
     }
     
+    public synchronized StudentColumns getColumns() {
+        // Returns the students of the register stored column by
+        // column, building them again only if the register changed
+        if (!isColumnsCurrent()) {
+            // The mod count is read first, so a write made by another
+            // thread while the columns are built makes them out of
+            // date rather than being missed
+            StudentRegister current = register;
+            int modCount = current.getModCount();
+            columns = StudentColumns.of(current);
+            columnsRegister = current;
+            columnsModCount = modCount;
+        }
+        return columns;
+    }
+    
+    private boolean isColumnsCurrent() {
+        return columns != null && columnsRegister == register
+                && columnsModCount == register.getModCount();
+    }
+    
+    public double calcGenderPercent(String studyMode, String gender) {
+        // Calculates the percentage of students of the given gender
+        // in the study mode with a loop over the gender and mode
+        // columns
+        return getColumns().calcGenderPercent(studyMode, gender);
+    }
+    
     public double calcGenderPercent(Student[] array, String gender){
         // This method calculates the percentage of  
         // students of the given gender in the array
@@ -369,39 +732,66 @@ public class CourseManager {
             }
                             
             // Calculates the percentage of students of the given gender
-            double percentage = (numGenderMatch / totalStudents) * 100.0;
-            // Return the percentage rounded to one decimal places
-            return Math.round(percentage * 10.0) / 10.0;
+            // rounded to one decimal place
+            return CourseStatistics.roundPercent(numGenderMatch,
+                    totalStudents);
         }
         // Return 0.0 if array is empty or there are no valid 
         return 0.0;
     }
     
+    public RegisterSnapshot snapshot() {
+        // Returns a version of the students that does not change,
+        // for reports and saves that must not see a change halfway
+        return register.snapshot();
+    }
+    
+    public CourseStatistics getStatistics() {
+        // Returns the statistics of every student in the course.
+        // The register updates them on each add and delete
+        return register.getStatistics();
+    }
+    
+    public CourseStatistics getValidStatistics() {
+        // Returns the statistics of the students that have all
+        // their details and will be saved to file
+        return register.getValidStatistics();
+    }
+    
+    public boolean checkStatistics() {
+        // Recounts every student and returns true if the running
+        // statistics match the recount
+        return register.checkStatistics();
+    }
+    
     public void printReport() {       
-        // Groups the students by study mode in respective arrays
-        groupStudentsByMode(studentArray);        
-        // Calculate the percentage of female and male students
-        double ftFemalePercentage = calcGenderPercent(fullTimeStudents, "F");
-        double ftMalePercentage = calcGenderPercent(fullTimeStudents, "M");
-        double ptFemalePercentage = calcGenderPercent(partTimeStudents, "F");
-        double ptMalePercentage = calcGenderPercent(partTimeStudents, "M");
+        // Get the counts and gender percentages of each study mode,
+        // all from the same version of the register
+        RegisterSnapshot snapshot = snapshot();
+        CourseStatistics stats = snapshot.getStatistics();
+        double ftFemalePercentage = stats.getGenderPercent("FT", "F");
+        double ftMalePercentage = stats.getGenderPercent("FT", "M");
+        double ptFemalePercentage = stats.getGenderPercent("PT", "F");
+        double ptMalePercentage = stats.getGenderPercent("PT", "M");
         
-        // Get the number of students with non-null 
-        // gender in each study mode
-        int numOfFT = countValidGenders(fullTimeStudents);
-        int numOfPT = countValidGenders(partTimeStudents);
+        // Get the number of students in each study mode and
+        // the number of them with non-null gender
+        int numOfFTStudents = stats.getNumInMode("FT");
+        int numOfPTStudents = stats.getNumInMode("PT");
+        int numOfFT = stats.getNumWithGender("FT");
+        int numOfPT = stats.getNumWithGender("PT");
         
         // Print the course details report
         System.out.println("☆☆☆ Course Details Report ☆☆☆");
         System.out.println("\nCourse Name: "+ getCourseName());
         System.out.println("Total Num of Students: " 
-                + getNumOfStudents(studentArray));
+                + snapshot.size());
         
         // Print num of valid students in each study mode
         System.out.println("\nTotal Num of Full-Time Students: "
-                + fullTimeStudents.length);        
+                + numOfFTStudents);        
         System.out.println("Total Num of Part-Time Students: "
-                + partTimeStudents.length);        
+                + numOfPTStudents);        
 
         System.out.printf("\n%-11s  %-16s  %-10s  %-8s\n"
                 ,"Study Mode", "Num of Students", "Female", "Male");        
@@ -417,8 +807,7 @@ public class CourseManager {
         
         // let user know percentage is calculated
         // based only on valid students
-        if (fullTimeStudents.length != numOfFT 
-                || partTimeStudents.length != numOfPT) {
+        if (numOfFTStudents != numOfFT || numOfPTStudents != numOfPT) {
             System.out.println("\nPercentage of genders in each study mode"
                     + " is calculated based only on valid students.");
         }
@@ -0,0 +1,189 @@
+package enrolmentregister;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/*
+The CourseStatistics class holds the counts and gender
+percentages of a course for each study mode
+* Counts every student in a single pass over the array
+* Counts students by study mode and gender, and by year
+* Can add and remove single students to keep the counts
+  up to date as the register changes
+* Calculates gender percentages from the counts
+* Can be reset and filled again to avoid allocating
+*/
+
+public class CourseStatistics {
+
+    // Row of the counts table for each study mode
+    private static final int FT = 0;
+    private static final int PT = 1;
+    private static final int NUM_OF_MODES = 2;
+
+    // Column of the counts table for each gender
+    private static final int FEMALE = 0;
+    private static final int MALE = 1;
+    private static final int NO_GENDER = 2;
+    private static final int NUM_OF_GENDERS = 3;
+
+    // Years 1 to 4 have their own count, index 0 counts
+    // students without a valid year
+    private static final int NUM_OF_YEARS = 4;
+
+    private int numOfStudents;
+    private final int[][] counts = new int[NUM_OF_MODES][NUM_OF_GENDERS];
+    private final int[] yearCounts = new int[NUM_OF_YEARS + 1];
+
+    public static CourseStatistics of(Student[] students) {
+        // Returns the statistics of every student in the array
+        return of(students, student -> true);
+    }
+
+    public static CourseStatistics of(Student[] students,
+            Predicate<Student> include) {
+        // Returns the statistics of the students in the array
+        // that the predicate accepts
+        CourseStatistics statistics = new CourseStatistics();
+        statistics.accumulate(students, include);
+        return statistics;
+    }
+
+    public CourseStatistics copy() {
+        // Returns a copy of the counts that later changes to these
+        // counts do not affect
+        CourseStatistics copy = new CourseStatistics();
+        copy.numOfStudents = numOfStudents;
+        for (int i = 0; i < NUM_OF_MODES; i++) {
+            System.arraycopy(counts[i], 0, copy.counts[i], 0,
+                    NUM_OF_GENDERS);
+        }
+        System.arraycopy(yearCounts, 0, copy.yearCounts, 0,
+                yearCounts.length);
+        return copy;
+    }
+
+    public void reset() {
+        // Sets every count back to zero
+        numOfStudents = 0;
+        for (int[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+        Arrays.fill(yearCounts, 0);
+    }
+
+    public void accumulate(Student[] students, Predicate<Student> include) {
+        // Adds the students the predicate accepts to the counts,
+        // walking the array only once
+        for (Student student : students) {
+            if (student != null && include.test(student)) {
+                add(student);
+            }
+        }
+    }
+
+    public void add(Student student) {
+        // Adds a single student to the counts
+        update(student, 1);
+    }
+
+    public void remove(Student student) {
+        // Removes a single student that was added before
+        update(student, -1);
+    }
+
+    private void update(Student student, int delta) {
+        // Adds delta to every count the student belongs to
+        numOfStudents += delta;
+        int mode = modeRow(student.getStudyMode());
+        if (mode >= 0) {
+            counts[mode][genderColumn(student.getGender())] += delta;
+        }
+        yearCounts[yearIndex(student.getYear())] += delta;
+    }
+
+    private static int modeRow(String studyMode) {
+        // Returns the row for the study mode or -1 if the
+        // study mode is not set
+        if ("FT".equals(studyMode)) {
+            return FT;
+        } else if ("PT".equals(studyMode)) {
+            return PT;
+        }
+        return -1;
+    }
+
+    private static int genderColumn(String gender) {
+        // Returns the column for the gender
+        if ("F".equals(gender)) {
+            return FEMALE;
+        } else if ("M".equals(gender)) {
+            return MALE;
+        }
+        return NO_GENDER;
+    }
+
+    private static int yearIndex(int year) {
+        // Returns the index of the year in the year counts
+        return year >= 1 && year <= NUM_OF_YEARS ? year : 0;
+    }
+
+    public int getNumOfStudents() {
+        // Returns the number of students counted
+        return numOfStudents;
+    }
+
+    public int getNumInMode(String studyMode) {
+        // Returns the number of students in the study mode
+        int mode = modeRow(studyMode);
+        if (mode < 0) {
+            return 0;
+        }
+        return counts[mode][FEMALE] + counts[mode][MALE]
+                + counts[mode][NO_GENDER];
+    }
+
+    public int getNumWithGender(String studyMode) {
+        // Returns the number of students in the study mode
+        // that have a valid gender
+        int mode = modeRow(studyMode);
+        if (mode < 0) {
+            return 0;
+        }
+        return counts[mode][FEMALE] + counts[mode][MALE];
+    }
+
+    public int getNumInYear(int year) {
+        // Returns the number of students in the given year
+        return year >= 1 && year <= NUM_OF_YEARS ? yearCounts[year] : 0;
+    }
+
+    public double getGenderPercent(String studyMode, String gender) {
+        // Returns the percentage of students of the given gender
+        // among the students in the study mode that have a valid
+        // gender, rounded to one decimal place
+        int mode = modeRow(studyMode);
+        int column = genderColumn(gender);
+        if (mode < 0 || column == NO_GENDER) {
+            return 0.0;
+        }
+        return roundPercent(counts[mode][column], getNumWithGender(studyMode));
+    }
+
+    public boolean sameCountsAs(CourseStatistics other) {
+        // Returns true if both statistics hold the same counts
+        return numOfStudents == other.numOfStudents
+                && Arrays.deepEquals(counts, other.counts)
+                && Arrays.equals(yearCounts, other.yearCounts);
+    }
+
+    public static double roundPercent(double numMatch, double total) {
+        // Returns numMatch as a percentage of total rounded to one
+        // decimal place, or 0.0 if total is 0
+        if (total == 0) {
+            return 0.0;
+        }
+        double percentage = (numMatch / total) * 100.0;
+        return Math.round(percentage * 10.0) / 10.0;
+    }
+}
@@ -1,17 +1,27 @@
 import enrolmentregister.CourseManager;
-import enrolmentregister.FullTimeStudent;
-import enrolmentregister.PartTimeStudent;
+import enrolmentregister.CourseStatistics;
+import enrolmentregister.FeeTable;
 import enrolmentregister.Student;
+import enrolmentregister.StudentColumns;
+import enrolmentregister.StudentJournal;
+import enrolmentregister.StudentRegister;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
@@ -68,8 +78,8 @@ public class CourseTest {
         
         // Group the students by their study mode
         course.groupStudentsByMode(studentArray1);
-        PartTimeStudent[] ptStudents = course.getPTStudentArray();
-        FullTimeStudent[] ftStudents = course.getFTStudentArray();
+        Student[] ptStudents = course.getPTStudentArray();
+        Student[] ftStudents = course.getFTStudentArray();
         
         // Verify the correct number of students were grouped
         assertEquals(2, ptStudents.length);
@@ -86,6 +96,10 @@ public class CourseTest {
         
         assertEquals(true, ptStudentNames.contains("Alice Johnson"));
         assertEquals(true, ptStudentNames.contains("Bob Smith"));
+        
+        // Verify the grouped students are the same objects, not copies
+        assertSame(studentArray1[0], ftStudents[0]);
+        assertArrayEquals(new int[] {2, 3}, course.getPTStudentIndexes());
     }
     
     @Test
@@ -104,22 +118,23 @@ public class CourseTest {
         assertTrue(added);
         assertEquals("Mary Doe", course.getStudentArray()[index].getName());
         
-        // Since the test array has now reached full capacity, a new student
-        // should not be allowed to be added
+        // The test array has now reached its initial length, so the
+        // register should grow to make space for the next student
         userInput = "Jack Clay\n" + "10/05/2001\n" + "F\n" + "FT\n" 
                 + "1\n" + "5\n";
         System.setIn(new ByteArrayInputStream(userInput.getBytes()));
         
-        // When attempting to add the student to the array, 
-        // addStudentPrompt() should return false as array is full
         added = course.addStudentPrompt();
-        assertFalse(added);
+        assertTrue(added);
+        assertEquals("Jack Clay", course.getStudentArray()[index + 1]
+                .getName());
+        assertEquals(6, course.getNumOfStudents(course.getStudentArray()));
     }
     
     @Test 
-    public void testAddStudent_MaxCapacity() {
-        // This test checks that a new student is not added to the array
-        // if it has reached full capacity
+    public void testAddStudent_FullArray() {
+        // This test checks that a new student is still added when
+        // the array given to the course has no free slot left
         
         // Set up the input stream
         String userInput = "Mary Doe\n" + "10/05/2001\n" + "F\n" 
@@ -131,10 +146,12 @@ public class CourseTest {
         students[0] = new Student("John Doe", null, "M", null, 0, 0, 0);
         course.setStudentArray(students);
         
-        // When attempting to add the student to the array, 
-        // addStudentPrompt() should return false as array is full
+        // The register grows and the student is added after
+        // the existing student
         boolean added = course.addStudentPrompt();
-        assertFalse(added);
+        assertTrue(added);
+        assertEquals("John Doe", course.getStudentArray()[0].getName());
+        assertEquals("Mary Doe", course.getStudentArray()[1].getName());
     }
     
     @Test 
@@ -362,6 +379,25 @@ public class CourseTest {
         assertEquals(3, numOfStudents);
     }
 
+    @Test
+    public void testGetNumOfStudents_KeptOnAddAndDelete() {
+        // This test checks that the running count of students follows
+        // adds and deletes, even when the array has a null in the middle
+        Student[] students = new Student[4];
+        students[0] = new Student("Mary Doe", null, "F", null, 0, 0, 0);
+        students[2] = new Student("Jane Smith", null, "F", null, 0, 0, 0);
+        course.setStudentArray(students);
+        assertEquals(2, course.getNumOfStudents());
+        
+        course.addStudent(new Student("Kelly Johnson", null, "F", null,
+                0, 0, 0));
+        assertEquals(3, course.getNumOfStudents());
+        
+        course.deleteStudent(course.findStudentIndex("Mary Doe"));
+        assertEquals(2, course.getNumOfStudents());
+        assertEquals(-1, course.findStudentIndex("Mary Doe"));
+    }
+
     @Test
     public void testCalcGenderPercent_NoMatch() {
         // This test checks if the percentage of male in
@@ -395,6 +431,211 @@ public class CourseTest {
         assertEquals(50.0, percentage, 0.01);
     }
     
+    @Test
+    public void testGetStatistics() {
+        // This test checks that the single pass statistics match
+        // the counts and percentages of each study mode
+        CourseStatistics stats = course.getStatistics();
+        
+        assertEquals(4, stats.getNumOfStudents());
+        assertEquals(2, stats.getNumInMode("FT"));
+        assertEquals(2, stats.getNumInMode("PT"));
+        assertEquals(50.0, stats.getGenderPercent("FT", "F"), 0.01);
+        assertEquals(50.0, stats.getGenderPercent("PT", "M"), 0.01);
+    }
+    
+    @Test
+    public void testGetColumns() throws ParseException {
+        // This test checks that the column store gives the same
+        // percentages as the student array, is rebuilt after a
+        // change, and that its views read and write the columns
+        StudentColumns columns = course.getColumns();
+        assertSame(columns, course.getColumns());
+        assertEquals(course.calcGenderPercent(studentArray, "M"),
+                columns.calcGenderPercent("M"), 0.01);
+        assertEquals(50.0, course.calcGenderPercent("FT", "F"), 0.01);
+        assertEquals(2, columns.countInMode("PT"));
+        assertEquals(5250, columns.totalFees("PT"));
+
+        course.addStudent(new Student("Amy Lee", format.parse("02/02/2002"),
+                "F", "PT", 1, 2, 1500));
+        columns = course.getColumns();
+        assertEquals(5, columns.size());
+        assertEquals(66.7, course.calcGenderPercent("PT", "F"), 0.01);
+
+        Student view = columns.view(4);
+        assertEquals("Amy Lee", view.getName());
+        assertEquals("02/02/2002", view.getDOBStr());
+        assertTrue(view.hasAllDetails());
+        view.setNumModules(4);
+        view.setFee();
+        assertEquals(3000, columns.view(4).getFee());
+        assertEquals(6, columns.cursor().moveTo(1).getNumModules());
+    }
+
+    @Test
+    public void testGetColumns_ModeWithNoStudents() throws ParseException {
+        // This test checks that a study mode no student is in counts
+        // nothing, rather than the students with no study mode
+        course = new CourseManager();
+        course.addStudent(new Student("John Doe", format.parse("01/01/2000"),
+                "F", null, 1, 6, 0));
+        course.addStudent(new Student("Jane Doe", format.parse("01/01/2001"),
+                "F", "FT", 1, 6, 5000));
+        StudentColumns columns = course.getColumns();
+        assertEquals(0, columns.countInMode("PT"));
+        assertEquals(0, columns.countWithGender("PT"));
+        assertEquals(0, columns.countMatching("PT", "F"));
+        assertEquals(0, columns.totalFees("PT"));
+        assertEquals(0.0, course.calcGenderPercent("PT", "F"), 0.01);
+        assertEquals(1, columns.countInMode(null));
+        assertEquals(100.0, course.calcGenderPercent("FT", "F"), 0.01);
+    }
+
+    @Test
+    public void testRecomputeFees() throws ParseException {
+        // This test checks that repricing with a fee table gives the
+        // fees of Student.setFee, and that a changed rule reprices
+        // both the register and its columns
+        assertEquals(2250, FeeTable.STANDARD.feeOf("PT", 2, 3));
+        assertEquals(2500, FeeTable.STANDARD.feeOf("FT", 3, 3));
+        assertEquals(0, FeeTable.STANDARD.feeOf(null, 1, 1));
+        assertEquals(7500, FeeTable.STANDARD.feeOf("PT", 1, 10));
+
+        FeeTable doubled = FeeTable.compile((mode, year, modules) ->
+                2 * Student.calcFee(mode, year, modules));
+        StudentColumns columns = course.getColumns();
+        columns.recomputeFees(doubled);
+        course.recomputeFees(doubled);
+        for (int i = 0; i < columns.size(); i++) {
+            Student student = course.getStudentArray()[i];
+            assertEquals(2 * Student.calcFee(student.getStudyMode(),
+                    student.getYear(), student.getNumModules()),
+                    student.getFee());
+            assertEquals(student.getFee(), columns.view(i).getFee());
+        }
+        assertEquals(10500, course.getColumns().totalFees("PT"));
+
+        // A concurrent register reprices chunk by chunk
+        CourseManager shared = new CourseManager();
+        shared.setConcurrent(true);
+        for (int i = 0; i < 3000; i++) {
+            shared.addStudent(new Student("Student " + i, null, "F", "PT",
+                    1, 2, 1500));
+        }
+        assertEquals(3000, shared.recomputeFees(doubled));
+        assertEquals(0, shared.recomputeFees(doubled));
+        assertEquals(3000 * 3000L, shared.getColumns().totalFees("PT"));
+    }
+
+    @Test
+    public void testConcurrentCourse_CountsMatchIndex() throws Exception {
+        // This stress test adds, deletes and looks up students with
+        // a small set of shared names from several threads at once,
+        // while the register is compacted. Students that are never
+        // deleted must always be found. Afterwards the count,
+        // statistics, name index and journal must all agree with
+        // the students in the register
+        File journalFile = File.createTempFile("TempJournal", ".journal");
+        journalFile.deleteOnExit();
+        StudentJournal journal = new StudentJournal(journalFile.getPath());
+        journal.open();
+        CourseManager shared = new CourseManager();
+        shared.setConcurrent(true);
+        shared.setJournal(journal);
+
+        String[] names = new String[40];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "Student " + (char) ('A' + i % 26)
+                    + (char) ('a' + i / 26);
+        }
+        // SimpleDateFormat is not thread-safe, so the date is parsed
+        // once before the threads start
+        java.util.Date dob = format.parse("01/01/2000");
+        AtomicInteger numAdded = new AtomicInteger();
+        AtomicInteger numDeleted = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            shared.addStudent(new Student("Keep N" + i, dob, "M", "FT",
+                    1, 6, 5000));
+            numAdded.incrementAndGet();
+        }
+        Thread[] threads = new Thread[4];
+        Throwable[] error = new Throwable[1];
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(t);
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 5000; i++) {
+                        String name = names[random.nextInt(names.length)];
+                        int op = random.nextInt(10);
+                        if (op < 5) {
+                            shared.addStudent(new Student(name, dob, "F",
+                                    "PT", 1 + i % 4, 1 + i % 6, 750));
+                            numAdded.incrementAndGet();
+                        } else if (op < 8) {
+                            if (shared.deleteStudent(name)) {
+                                numDeleted.incrementAndGet();
+                            }
+                        } else if (op < 9) {
+                            shared.findStudentIndex(name);
+                            shared.getNumOfStudents();
+                            String keep = "Keep N" + random.nextInt(200);
+                            assertTrue(keep + " not found",
+                                    shared.findStudentIndex(keep) >= 0);
+                        } else if (i % 10 == 0) {
+                            numDeleted.addAndGet(shared.deleteStudents(
+                                    Arrays.asList(name)));
+                        } else {
+                            shared.getStudentRegister().compact();
+                        }
+                    }
+                } catch (Throwable e) {
+                    error[0] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (error[0] != null) {
+            throw new AssertionError(error[0]);
+        }
+
+        StudentRegister register = shared.getStudentRegister();
+        int expected = numAdded.get() - numDeleted.get();
+        assertEquals(expected, shared.getNumOfStudents());
+        assertEquals(expected, shared.getStatistics().getNumOfStudents());
+        assertTrue(shared.checkStatistics());
+        int numIndexed = 0;
+        for (String name : names) {
+            for (int slot : register.indexesOf(name)) {
+                assertEquals(name, register.get(slot).getName());
+                numIndexed++;
+            }
+        }
+        assertEquals(expected, numIndexed + 200);
+
+        // Replaying the journal gives the same students
+        journal.commit();
+        journal.close();
+        StudentRegister replayed = new StudentRegister();
+        new StudentJournal(journalFile.getPath()).replay(replayed);
+        assertEquals(expected, replayed.size());
+        assertEquals(countNames(register), countNames(replayed));
+    }
+
+    private static Map<String, Integer> countNames(StudentRegister register) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < register.end(); i++) {
+            Student student = register.get(i);
+            if (student != null) {
+                counts.merge(student.getName(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
     @Test
     public void testNumOfStudents_InvalidStudyMode() throws ParseException {
         // This test verfies that invalid students are not taken into
@@ -413,8 +654,8 @@ public class CourseTest {
         course.setStudentArray(studentArray1);
         course.groupStudentsByMode(studentArray1);
         
-        FullTimeStudent[] ftStudents = course.getFTStudentArray();
-        PartTimeStudent[] ptStudents = course.getPTStudentArray();
+        Student[] ftStudents = course.getFTStudentArray();
+        Student[] ptStudents = course.getPTStudentArray();
         
         // Verify that the student with invalid study mode has
         // been ignored
@@ -447,8 +688,8 @@ public class CourseTest {
         course.setStudentArray(studentArray1);
         course.groupStudentsByMode(studentArray1);
         
-        FullTimeStudent[] ftStudents = course.getFTStudentArray();
-        PartTimeStudent[] ptStudents = course.getPTStudentArray();
+        Student[] ftStudents = course.getFTStudentArray();
+        Student[] ptStudents = course.getPTStudentArray();
         
         // Verify that the student with invalid study mode has
         // been ignored
@@ -0,0 +1,129 @@
+package enrolmentregister;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/*
+* This class reads and writes dates in the dd/MM/yyyy layout
+* used by the Student Details file.
+* Dates in the exact layout are parsed digit by digit and
+* formatted straight into a char array. Other text falls back
+* to SimpleDateFormat so lenient dates parse as before.
+* The class holds no state, so it is safe to share between threads.
+*/
+
+public final class DateCodec {
+
+    private static final String PATTERN = "dd/MM/yyyy";
+    private static final int LENGTH = PATTERN.length();
+
+    // Before 1583 SimpleDateFormat uses the Julian calendar, and
+    // after 9999 the year no longer fits in four digits, so dates
+    // outside these years are left to SimpleDateFormat
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+
+    private DateCodec() {
+    }
+
+    public static Date parse(CharSequence text) throws ParseException {
+        return parse(text, 0, text.length());
+    }
+
+    public static Date parse(CharSequence text, int start, int end)
+            throws ParseException {
+        // Parses the date between start and end. Dates are
+        // midnight in the default time zone, as SimpleDateFormat
+        // would return them
+        LocalDate date = parseLocalDate(text, start, end);
+        if (date == null) {
+            // Not in the exact layout or not a real date, so let
+            // SimpleDateFormat handle it leniently
+            return new SimpleDateFormat(PATTERN).parse(
+                    text.subSequence(start, end).toString());
+        }
+        return toDate(date);
+    }
+
+    public static LocalDate parseLocalDate(CharSequence text, int start,
+            int end) {
+        // Returns the date if the text is exactly dd/MM/yyyy and a
+        // real date, otherwise returns null
+        if (end - start != LENGTH || text.charAt(start + 2) != '/'
+                || text.charAt(start + 5) != '/') {
+            return null;
+        }
+        int day = digits(text, start, 2);
+        int month = digits(text, start + 3, 2);
+        int year = digits(text, start + 6, 4);
+        if (day < 0 || month < 0 || year < MIN_YEAR) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        // Reads count decimal digits, or returns -1 if any
+        // character is not a digit
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    public static Date toDate(LocalDate date) {
+        // Returns midnight of the date in the default time zone
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault())
+                .toInstant());
+    }
+
+    public static LocalDate toLocalDate(Date date) {
+        // Returns the day of the date in the default time zone
+        return Instant.ofEpochMilli(date.getTime())
+                .atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    public static String format(Date date) {
+        // Returns the date as dd/MM/yyyy
+        LocalDate localDate = toLocalDate(date);
+        if (localDate.getYear() < MIN_YEAR
+                || localDate.getYear() > MAX_YEAR) {
+            return new SimpleDateFormat(PATTERN).format(date);
+        }
+        char[] chars = new char[LENGTH];
+        formatTo(localDate, chars, 0);
+        return new String(chars);
+    }
+
+    public static void formatTo(LocalDate date, char[] chars, int offset) {
+        // Writes the date as dd/MM/yyyy into chars at offset. The
+        // year must have four digits
+        int day = date.getDayOfMonth();
+        int month = date.getMonthValue();
+        int year = date.getYear();
+        chars[offset] = (char) ('0' + day / 10);
+        chars[offset + 1] = (char) ('0' + day % 10);
+        chars[offset + 2] = '/';
+        chars[offset + 3] = (char) ('0' + month / 10);
+        chars[offset + 4] = (char) ('0' + month % 10);
+        chars[offset + 5] = '/';
+        chars[offset + 6] = (char) ('0' + year / 1000 % 10);
+        chars[offset + 7] = (char) ('0' + year / 100 % 10);
+        chars[offset + 8] = (char) ('0' + year / 10 % 10);
+        chars[offset + 9] = (char) ('0' + year % 10);
+    }
+}
@@ -1,14 +1,15 @@
 /*
 * Student Enrolment Register Application
 * The program contains the following classes:
-* EnrolmentRegister, CourseManager, Student, FileIO,
-* FullTimeStudent, PartTimeStudent
+* EnrolmentRegister, CourseManager, Student, StudentPrompter, FileIO,
+* FeeRules, PersistenceScheduler, FullTimeStudent, PartTimeStudent
 */
 
 package enrolmentregister;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /*
 * This class acts as the user interface
@@ -36,54 +37,81 @@ public class EnrolmentRegister {
         // program static
         
         CourseManager course = new CourseManager();
+        // The course is saved in the background while the menu
+        // changes it, so it is shared between two threads
+        course.setConcurrent(true);
         FileIO fileIO = new FileIO(course);
         EnrolmentRegister register = new EnrolmentRegister(course, fileIO);
         
+        // Load the fee rules
+        FeeRulesWatcher feeRules = new FeeRulesWatcher("FeeRules.txt");
+        feeRules.reloadIfChanged();
+        
         // Read the files
         register.fileIO.readFiles();
         
+        // Save changes in the background every 30 seconds, or
+        // sooner once 100 students have changed
+        PersistenceScheduler saver = new PersistenceScheduler(
+                register.fileIO, 30, TimeUnit.SECONDS, 100);
+        if (register.fileIO.isCourseNamePrompted()) {
+            saver.changed(1);
+        }
+        
+        // Reprice the students read from the files, in case the
+        // rules changed while the program was not running or a
+        // reprice was lost. Only fees that change are saved
+        course.recomputeFees(FeeTable.current());
+        
+        // Reload the fee rules whenever the file changes while the
+        // program runs, and reprice the students as soon as they are
+        feeRules.setReloadListener(course::recomputeFees);
+        feeRules.start(5, TimeUnit.SECONDS);
+        
         // Display the menu and get user's choice
         register.runMenu(); 
+        feeRules.close();
 
-        // Write details to files and exit program
-        register.fileIO.writeFiles();
+        // Wait for the changes not saved yet and exit program
+        saver.close();
         System.out.println("\nGoodbye!");
     }
     
     public void runMenu() {        
         // Control if the program should go to the menu
         boolean goToMenu = true;        
-        try (Scanner input = new Scanner(System.in)) {
-            do {
-                // Get user's choice
-                MenuOption choice = getUserChoice(input); 
-                switch (choice) {
-                    case PRINT_REPORT:
-                        System.out.println();
-                        this.course.printReport();
-                        break;
-                    case ADD_STUDENT:
-                        System.out.println();
-                        this.course.addStudentPrompt();
-                        break;
-                    case DELETE_STUDENT:
-                        System.out.println();
-                        this.course.deleteStudentPrompt();
-                        break;
-                    case SEARCH_STUDENT:
-                        System.out.println();
-                        this.course.searchStudent();
-                        break;
-                    case EXIT:
-                        goToMenu = false;
-                        break;
-                }   
-                // Check if the program should go to menu or exit
-                if (goToMenu) {
-                    goToMenu = getUserConfirmation(input);
-                }
-            } while (goToMenu);
-        }
+        // The menu reads from the same input as the prompts of
+        // the course, so no line read ahead is lost between them
+        InputSource input = course.getInput();
+        do {
+            // Get user's choice
+            MenuOption choice = getUserChoice(input); 
+            switch (choice) {
+                case PRINT_REPORT:
+                    System.out.println();
+                    this.course.printReport();
+                    break;
+                case ADD_STUDENT:
+                    System.out.println();
+                    this.course.addStudentPrompt();
+                    break;
+                case DELETE_STUDENT:
+                    System.out.println();
+                    this.course.deleteStudentPrompt();
+                    break;
+                case SEARCH_STUDENT:
+                    System.out.println();
+                    this.course.searchStudent();
+                    break;
+                case EXIT:
+                    goToMenu = false;
+                    break;
+            }   
+            // Check if the program should go to menu or exit
+            if (goToMenu) {
+                goToMenu = getUserConfirmation(input);
+            }
+        } while (goToMenu);
     }
     
     /* 
@@ -118,6 +146,10 @@ public class EnrolmentRegister {
     */
 
     public MenuOption getUserChoice(Scanner input) {
+        return getUserChoice(InputSource.of(input));
+    }
+
+    public MenuOption getUserChoice(InputSource input) {
         // Method gets the user's menu choice and returns it
         
         System.out.println("\n☆☆☆ Main Menu ☆☆☆");
@@ -155,6 +187,10 @@ public class EnrolmentRegister {
      </a>
     */
     public boolean getUserConfirmation(Scanner input) {
+        return getUserConfirmation(InputSource.of(input));
+    }
+
+    public boolean getUserConfirmation(InputSource input) {
         // Get user confirmation if they want to go to menu
         while (true) {
             System.out.print("\nDo you want to go back to menu? (Yes/No): ");
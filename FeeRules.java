@@ -0,0 +1,131 @@
+package enrolmentregister;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+* This class reads the fee rules from the Fee Rules file, so fees
+* can be changed without changing the program. Each line is a rule:
+* study mode, year or "Any", a fixed fee and a fee per module,
+* separated by commas. The fee of a student is the fixed fee plus
+* the fee per module times their number of modules, from the rule
+* for their study mode and year, or else the "Any" rule for their
+* study mode. A student that no rule matches has no fee. A header
+* line and blank lines are skipped. The rules never change once
+* read, and are compiled into a FeeTable to price students.
+*/
+
+public final class FeeRules implements FeeTable.FeeRule {
+
+    private static final String SEPARATOR = ",";
+    private static final String ANY_YEAR = "Any";
+    private static final int ANY = -1;
+    private static final int NUM_OF_FIELDS = 4;
+
+    // The standard rules of Student.calcFee, as written in the file
+    public static final String STANDARD_TEXT = "Study Mode, Year, Fee, "
+            + "Fee per Module\n"
+            + "FT, 1, 5000, 0\n"
+            + "FT, 2, 5000, 0\n"
+            + "FT, 3, 2500, 0\n"
+            + "FT, 4, 5000, 0\n"
+            + "PT, Any, 0, 750\n";
+
+    private final String[] studyModes;
+    private final int[] years;
+    private final int[] fixedFees;
+    private final int[] moduleFees;
+
+    private FeeRules(List<String> studyModes, List<int[]> values) {
+        int numOfRules = studyModes.size();
+        this.studyModes = studyModes.toArray(new String[numOfRules]);
+        this.years = new int[numOfRules];
+        this.fixedFees = new int[numOfRules];
+        this.moduleFees = new int[numOfRules];
+        for (int i = 0; i < numOfRules; i++) {
+            years[i] = values.get(i)[0];
+            fixedFees[i] = values.get(i)[1];
+            moduleFees[i] = values.get(i)[2];
+        }
+    }
+
+    public static FeeRules read(String fileName) throws IOException,
+            ParseException {
+        // Reads the rules of the Fee Rules file
+        return parse(new String(Files.readAllBytes(Paths.get(fileName)),
+                Charset.defaultCharset()));
+    }
+
+    public static FeeRules parse(String text) throws ParseException {
+        // Reads the rules from the text of a Fee Rules file. An
+        // error gives the number of the line it is on
+        List<String> studyModes = new ArrayList<>();
+        List<int[]> values = new ArrayList<>();
+        String[] lines = text.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || (i == 0 && line.startsWith("Study"))) {
+                continue;
+            }
+            String[] fields = line.split(SEPARATOR);
+            if (fields.length != NUM_OF_FIELDS) {
+                throw new ParseException("Fee rules line " + (i + 1)
+                        + ": Line has " + fields.length
+                        + " fields instead of " + NUM_OF_FIELDS, 0);
+            }
+            try {
+                String year = fields[1].trim();
+                int[] rule = {
+                    year.equalsIgnoreCase(ANY_YEAR) ? ANY
+                            : Integer.parseInt(year),
+                    Integer.parseInt(fields[2].trim()),
+                    Integer.parseInt(fields[3].trim())
+                };
+                if (rule[0] < ANY || rule[1] < 0 || rule[2] < 0) {
+                    throw new ParseException("Fee rules line " + (i + 1)
+                            + ": Year and fees cannot be negative", 0);
+                }
+                studyModes.add(fields[0].trim());
+                values.add(rule);
+            } catch (NumberFormatException e) {
+                throw new ParseException("Fee rules line " + (i + 1)
+                        + ": " + e.getMessage(), 0);
+            }
+        }
+        return new FeeRules(studyModes, values);
+    }
+
+    public FeeTable compile() {
+        return FeeTable.compile(this);
+    }
+
+    @Override
+    public int feeOf(String studyMode, int year, int numModules) {
+        // Returns the fee from the rule for the study mode and
+        // year, or the rule for any year of the study mode
+        int match = -1;
+        for (int i = 0; i < studyModes.length; i++) {
+            if (studyModes[i].equals(studyMode)) {
+                if (years[i] == year) {
+                    match = i;
+                    break;
+                } else if (years[i] == ANY && match < 0) {
+                    match = i;
+                }
+            }
+        }
+        if (match < 0) {
+            return 0;
+        }
+        return fixedFees[match] + moduleFees[match] * numModules;
+    }
+
+    public int getNumOfRules() {
+        return studyModes.length;
+    }
+}
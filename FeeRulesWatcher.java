@@ -0,0 +1,109 @@
+package enrolmentregister;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+* This class keeps the fee table in use up to date with the Fee
+* Rules file. The file is checked on a background thread, and when
+* its size or modified time changes it is read and compiled there,
+* then published with FeeTable.publish in one atomic swap. Code that
+* prices a student reads whichever table is current, so a reload
+* never blocks it. A file with an error is reported once and the
+* table in use is kept until the file changes again. Students
+* already priced are repriced by the reload listener as soon as a
+* table is published, usually with CourseManager.recomputeFees.
+*/
+
+public class FeeRulesWatcher implements Closeable {
+
+    private final File file;
+    private ScheduledExecutorService scheduler;
+
+    // Size and modified time of the file when it was last read, so
+    // a change that keeps the modified time still reloads it
+    private long lastModified = -1;
+    private long lastLength = -1;
+
+    // Told of every table published, after it is published
+    private volatile Consumer<FeeTable> reloadListener;
+
+    public FeeRulesWatcher(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    public void setReloadListener(Consumer<FeeTable> reloadListener) {
+        this.reloadListener = reloadListener;
+    }
+
+    public synchronized boolean reloadIfChanged() throws IOException,
+            ParseException {
+        // Reads and publishes the rules if the file has changed
+        // since it was last read. A missing file keeps the table
+        // in use. A file with an error counts as read too, so it is
+        // only reported once. A file caught half written is read
+        // again when the rest is written, as that changes its size
+        // or modified time. Returns true if a new table was
+        // published
+        if (!file.exists()) {
+            return false;
+        }
+        long modified = file.lastModified();
+        long length = file.length();
+        if (modified == lastModified && length == lastLength) {
+            return false;
+        }
+        lastModified = modified;
+        lastLength = length;
+        FeeTable table = FeeRules.read(file.getPath()).compile();
+        FeeTable.publish(table);
+        Consumer<FeeTable> listener = reloadListener;
+        if (listener != null) {
+            listener.accept(table);
+        }
+        return true;
+    }
+
+    public synchronized void start(long interval, TimeUnit unit) {
+        // Checks the file for changes every interval on a daemon
+        // thread, so it never keeps the program from exiting
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "fee-rules-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, 0, interval, unit);
+    }
+
+    private void check() {
+        // A scheduled task that throws is never run again, so an
+        // error is printed and the next check goes on watching for
+        // the file to change
+        try {
+            if (reloadIfChanged()) {
+                System.out.println("\nFee rules reloaded from "
+                        + file.getPath());
+            }
+        } catch (IOException | ParseException e) {
+            System.out.println("\nWarning: Fee rules could not be "
+                    + "reloaded: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package enrolmentregister;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+* This class holds the tuition fee of every combination of study
+* mode, year and number of modules, worked out once from a FeeRule.
+* A fee is then one array lookup by a code made from the three
+* values, instead of a switch on the study mode for every student.
+* Years and module counts outside the table, which the prompts never
+* allow, are priced by the rule itself. A table never changes once
+* it is compiled, so it can be shared between threads. The table in
+* use is swapped atomically when the fee rules are reloaded.
+*/
+
+public final class FeeTable {
+
+    public static final int MAX_YEAR = 4;
+    public static final int MAX_MODULES = 6;
+
+    // Row of the table for each study mode. Any other study mode,
+    // or none, has the fees of a student without a study mode
+    private static final int FT = 0;
+    private static final int PT = 1;
+    private static final int OTHER_MODE = 2;
+    private static final int NUM_OF_MODES = 3;
+    private static final String[] MODES = {"FT", "PT", null};
+
+    private static final int YEARS = MAX_YEAR + 1;
+    private static final int MODULES = MAX_MODULES + 1;
+
+    // The fees of the standard rules in Student.calcFee
+    public static final FeeTable STANDARD = compile(Student::calcFee);
+
+    // The table Student.setFee() prices with
+    private static final AtomicReference<FeeTable> CURRENT
+            = new AtomicReference<>(STANDARD);
+
+    /*
+    * Interface for the rules that give the fee of a student
+    */
+    public interface FeeRule {
+        int feeOf(String studyMode, int year, int numModules);
+    }
+
+    private final int[] fees;
+    private final FeeRule rule;
+
+    private FeeTable(int[] fees, FeeRule rule) {
+        this.fees = fees;
+        this.rule = rule;
+    }
+
+    public static FeeTable compile(FeeRule rule) {
+        // Works out the fee of every code in the table
+        int[] fees = new int[NUM_OF_MODES * YEARS * MODULES];
+        for (int mode = 0; mode < NUM_OF_MODES; mode++) {
+            for (int year = 0; year < YEARS; year++) {
+                for (int modules = 0; modules < MODULES; modules++) {
+                    fees[(mode * YEARS + year) * MODULES + modules]
+                            = rule.feeOf(MODES[mode], year, modules);
+                }
+            }
+        }
+        return new FeeTable(fees, rule);
+    }
+
+    public static FeeTable current() {
+        return CURRENT.get();
+    }
+
+    public static FeeTable publish(FeeTable table) {
+        // Makes the table the one students are priced with and
+        // returns the table it replaced
+        return CURRENT.getAndSet(Objects.requireNonNull(table));
+    }
+
+    public static int modeIndex(String studyMode) {
+        // Returns the row of the table for the study mode
+        if ("FT".equals(studyMode)) {
+            return FT;
+        } else if ("PT".equals(studyMode)) {
+            return PT;
+        }
+        return OTHER_MODE;
+    }
+
+    public static int code(int modeIndex, int year, int numModules) {
+        // Returns the code of the fee in the table, or -1 if the
+        // year or number of modules is outside the table
+        if (year < 0 || year > MAX_YEAR || numModules < 0
+                || numModules > MAX_MODULES) {
+            return -1;
+        }
+        return (modeIndex * YEARS + year) * MODULES + numModules;
+    }
+
+    public int feeOf(String studyMode, int year, int numModules) {
+        // Returns the fee of a student with these details
+        int code = code(modeIndex(studyMode), year, numModules);
+        if (code < 0) {
+            return rule.feeOf(studyMode, year, numModules);
+        }
+        return fees[code];
+    }
+
+    public int feeOf(int code) {
+        // Returns the fee for a code from code()
+        return fees[code];
+    }
+
+    public FeeRule getRule() {
+        return rule;
+    }
+}
@@ -1,12 +1,10 @@
 package enrolmentregister;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.File;
+import java.io.Writer;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.io.IOException;
 import java.util.stream.Collectors;
@@ -19,29 +17,122 @@ import java.util.stream.Collectors;
 
 public class FileIO {
     public final CourseManager course;
-    final int MAX_STUDENTS;
+    private LoadMode loadMode = LoadMode.STREAM;
+    private StudentJournal journal;
+    private boolean binarySnapshot = false;
+    // Set when the course file had no course name and the user
+    // entered one, which is not in any file yet
+    private boolean courseNamePrompted = false;
+    private final File directory;
 
     // Constructor initialises FileIO class that takes CourseManager
     // object as parameter and assigns it to class variable
     public FileIO(CourseManager course) {
-        this.MAX_STUDENTS = 20;
+        this(course, null);
+    }
+
+    // Reads and writes the files of the course in the given
+    // directory instead of the working directory
+    public FileIO(CourseManager course, File directory) {
         this.course = course;
+        this.directory = directory;
+    }
+
+    /*
+    * Enum to store the ways the student file can be loaded
+    * STREAM reads the file line by line on the calling thread
+    * MAPPED memory maps the file and parses it on every core,
+    * which suits very large files
+    */
+    public enum LoadMode {
+        STREAM,
+        MAPPED
+    }
+
+    public void setLoadMode(LoadMode loadMode) {
+        this.loadMode = loadMode;
+    }
+
+    public LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    // When set, a binary snapshot is saved next to the student
+    // file and is read instead of it at startup
+    public void setBinarySnapshot(boolean binarySnapshot) {
+        this.binarySnapshot = binarySnapshot;
+    }
+
+    public boolean isBinarySnapshot() {
+        return binarySnapshot;
     }
 
     public void readFiles() throws IOException, ParseException {
-        // This method reads files and populates the student array
-        readCourseDetails("CourseDetails.txt");
-        readStudentDetails("StudentDetails.txt");
+        // This method reads files and populates the student array.
+        // A save that was cut short is first finished or undone
+        FileTransaction.recover(directory == null ? "."
+                : directory.getPath());
+        FileTransaction.discardTemp(path("StudentDetails.txt"));
+        FileTransaction.discardTemp(path("CourseDetails.txt"));
+        FileTransaction.discardTemp(path("StudentDetails.journal"));
+        FileTransaction.discardTemp(path("StudentDetails.bin"));
+        
+        readCourseDetails(path("CourseDetails.txt"));
+        if (binarySnapshot && new File(path("StudentDetails.bin")).exists()) {
+            readStudentSnapshot(path("StudentDetails.bin"));
+        } else if (loadMode == LoadMode.MAPPED) {
+            readStudentDetailsMapped(path("StudentDetails.txt"));
+        } else {
+            readStudentDetails(path("StudentDetails.txt"));
+        }
+        openJournal(path("StudentDetails.journal"));
+    }
+
+    private String path(String fileName) {
+        // Returns the path of a file of the course
+        return directory == null ? fileName
+                : new File(directory, fileName).getPath();
+    }
+
+    public void openJournal(String fileName) throws IOException,
+            ParseException {
+        // Replays the changes made since the student file was last
+        // saved, then journals each further add and delete so they
+        // are kept without rewriting the student file
+        StudentJournal newJournal = new StudentJournal(fileName);
+        newJournal.replay(course.getStudentRegister());
+        newJournal.open();
+        // Fold the journal into a fresh student file once it grows
+        newJournal.setCompactor(this::writeFiles);
+        journal = newJournal;
+        course.setJournal(newJournal);
+    }
+
+    public boolean isCourseNamePrompted() {
+        return courseNamePrompted;
+    }
+
+    public StudentJournal getJournal() {
+        return journal;
+    }
+
+    public void closeJournal() throws IOException {
+        // Closes the journal once the course is no longer used
+        if (journal != null) {
+            journal.close();
+            course.setJournal(null);
+            journal = null;
+        }
     }
 
     public void readStudentDetails(String fileName)
             throws ParseException, NumberFormatException, IOException {
         // This method reads student data from file and 
-        // store it in the student array 
+        // store it in the student register
 
         File file = new File(fileName);
-        // Create a temporary Student array of length MAX_STUDENTS
-        Student[] tempArray = new Student[MAX_STUDENTS];
+        // Create a temporary register that grows with the file
+        StudentRegister tempRegister = new StudentRegister();
 
         // Check if the file exists. If it does 
         // not exist, create a new file.
@@ -49,56 +140,90 @@ public class FileIO {
             file.createNewFile();
         }  
         
-        // Read each line in the file
-        try (Scanner scanner = new Scanner(file)) {
-            // If the file is empty, the temp array is set
-            // as the student array in CourseManager object
-            if (!scanner.hasNextLine()) {
-                course.setStudentArray(tempArray);
+        // Stream each student from the file
+        try (StudentFileReader reader = new StudentFileReader(fileName)) {
+            // If the file is empty, the temp register is set
+            // as the student register in CourseManager object
+            if (!reader.skipHeader()) {
+                course.setStudentRegister(tempRegister);
                 return;
             }
-            int index = 0;
-            scanner.nextLine(); // Skip the first line
             
-            while (scanner.hasNextLine()) {
-                // Read student details from each line of text
-                String line = scanner.nextLine();              
-                // Create a new Student object with these attributes
-                Student student = createStudentFromLine(line);
-                // Add the new Student to the temporary array
-                tempArray[index++] = student;
+            Student student;
+            while ((student = reader.next()) != null) {
+                // Add each new Student to the temporary register
+                tempRegister.add(student);
             }
         } catch (RuntimeException e){
             System.out.println("Error reading student details file");
             throw e;
         }
-        // Set the temporary student array as the new student 
-        // array in CourseManager object 
-        course.setStudentArray(tempArray);
+        // Set the temporary student register as the new student 
+        // register in CourseManager object 
+        course.setStudentRegister(tempRegister);
     }
-    
-    private Student createStudentFromLine(String line) 
-            throws ParseException, NumberFormatException {
-        // This method creates a Student object from a line of text
-        
-        // Split each line into parts and store them in an array
-            String[] parts = line.split(", ");
-
-            // Store each part in each index as each student attribute
-            String name = parts[0];
-            Date dob = new SimpleDateFormat("dd/MM/yyyy")
-                    .parse(parts[1]);
-            String gender = parts[2];
-            String studyMode = parts[3];
-            int year = Integer.parseInt(parts[4]);
-            int modules = Integer.parseInt(parts[5]);
-            int fee = Integer.parseInt(parts[6]);
-
-            // Create a new Student object with these attributes
-            Student student = new Student(name, dob, gender,
-                    studyMode, year, modules, fee);
-            
-            return student;      
+
+    public void readStudentDetailsMapped(String fileName)
+            throws ParseException, IOException {
+        // This method memory maps the student file, parses it in
+        // parallel and stores the students in the student register
+        // in the same order as the file
+
+        // Check if the file exists. If it does 
+        // not exist, create a new file.
+        File file = new File(fileName);
+        if (!file.exists()){
+            file.createNewFile();
+        }
+
+        try {
+            course.setStudentRegister(new MappedStudentLoader()
+                    .load(fileName));
+        } catch (RuntimeException e){
+            System.out.println("Error reading student details file");
+            throw e;
+        }
+    }
+
+    public void readStudentSnapshot(String fileName) throws IOException {
+        // This method memory maps a binary snapshot and stores its
+        // students in the student register
+        try {
+            course.setStudentRegister(new StudentSnapshot().read(fileName));
+        } catch (IOException e) {
+            System.out.println("Error reading student snapshot file");
+            throw e;
+        }
+    }
+
+    public void convertToBinary(String textFileName, String binaryFileName)
+            throws IOException, ParseException {
+        // Converts a Student Details file to a binary snapshot
+        StudentRegister register = new StudentRegister();
+        try (StudentFileReader reader = new StudentFileReader(textFileName)) {
+            if (reader.skipHeader()) {
+                Student student;
+                while ((student = reader.next()) != null) {
+                    register.add(student);
+                }
+            }
+        }
+        try (FileTransaction transaction = new FileTransaction()) {
+            new StudentSnapshot().write(register.array(),
+                    transaction.openStream(binaryFileName));
+            transaction.commit();
+        }
+    }
+
+    public void convertToText(String binaryFileName, String textFileName)
+            throws IOException {
+        // Converts a binary snapshot to a Student Details file
+        RegisterSnapshot students = new StudentSnapshot()
+                .read(binaryFileName).snapshot();
+        try (FileTransaction transaction = new FileTransaction()) {
+            writeStudentDetails(transaction.open(textFileName), students);
+            transaction.commit();
+        }
     }
 
     public void readCourseDetails(String fileName)throws IOException{
@@ -122,10 +247,10 @@ public class FileIO {
                 // Set the course name in the CourseManager object
                 this.course.setCourseName(line.substring(13).trim());
 
-            } else {
-                Scanner input = new Scanner(System.in);
+            } else if (this.course.getCourseName() == null) {
                 // Prompt the user to enter the course name
-                this.course.promptForCourseName(input);
+                this.course.promptForCourseName();
+                courseNamePrompted = true;
             }
         } catch (IOException e) {
             System.out.println("Error reading course details file");
@@ -133,10 +258,48 @@ public class FileIO {
         }
     }
 
-    public void writeFiles() throws IOException {
-        // This method writes student and course details to text files
-        writeStudentDetails("StudentDetails.txt");
-        writeCourseDetails("CourseDetails.txt");
+    public synchronized void writeFiles() throws IOException {
+        // This method writes student and course details to text
+        // files. Both files are replaced together or not at all.
+        // The journal is emptied in the same step, as the new
+        // student file holds every change it recorded. Every file
+        // is written from one snapshot of the register. With a
+        // journal no student is added or deleted until it is
+        // emptied, so none is lost or saved twice between the file
+        // and the journal
+        StudentJournal savedJournal = journal;
+        if (savedJournal != null) {
+            course.lockAllNames();
+        }
+        try (FileTransaction transaction = new FileTransaction()) {
+            RegisterSnapshot snapshot = course.snapshot();
+            writeStudentDetails(transaction.open(
+                    path("StudentDetails.txt")), snapshot);
+            writeCourseDetails(transaction.open(path("CourseDetails.txt")),
+                    snapshot);
+            if (binarySnapshot) {
+                new StudentSnapshot().write(snapshot.toArray(),
+                        transaction.openStream(path("StudentDetails.bin")));
+            } else if (new File(path("StudentDetails.bin")).exists()) {
+                // A snapshot from an earlier save would be loaded
+                // instead of the newer student file if binary
+                // snapshots were turned on again
+                transaction.delete(path("StudentDetails.bin"));
+            }
+            if (journal != null) {
+                transaction.open(journal.getFileName());
+            }
+            transaction.commit();
+            if (journal != null) {
+                journal.reset();
+            }
+        } catch (IOException e){
+            throw new IOException("Error writing details to files", e);
+        } finally {
+            if (savedJournal != null) {
+                course.unlockAllNames();
+            }
+        }
     }
     
     /*
@@ -153,11 +316,7 @@ public class FileIO {
         // students with invalid details
         List<Student> filteredStudents  = Arrays.stream(students)
                 .filter(Objects::nonNull)
-                .filter(student -> student.getDOB() != null
-                        && student.getGender() != null
-                        && student.getStudyMode() != null
-                        && student.getYear() != 0
-                        && student.getNumModules() != 0)
+                .filter(Student::hasAllDetails)
                 .collect(Collectors.toList());
 
         // Convert the list of valid students to an array
@@ -165,67 +324,61 @@ public class FileIO {
     }
 
     public void writeStudentDetails(String fileName) throws IOException{
-        // Writes valid student data to Student Details file
-
-        // Get the student array from the CourseManager object
-        // and filter it for valid students 
-        Student[] studentArray = course.getStudentArray();
-        Student[] validStudents = validateStudents(studentArray);
-
-        try (BufferedWriter bufferedWriter = new BufferedWriter
-                (new FileWriter(fileName))) {
-
-            // Write the header row
-            String header = "Name, Date of Birth, Gender, Study Mode, "
-                    + "Year, Num of Modules, Fee\n";
-            bufferedWriter.write(header);
-
-            // Write each student to the file
-            for (Student student : validStudents) {
-                if (student != null) {
-
-                    // Construct the student details as a string
-                    String line = String.format("%s, %s, %s, %s, %d, %s, %s\n",
-                            student.getName(),
-                            student.getDOBStr(),
-                            student.getGender(),
-                            student.getStudyMode(),
-                            student.getYear(),
-                            student.getNumModules(),
-                            student.getFee()
-                    );
-                    // Write the student details to the file
-                    bufferedWriter.write(line);
-                }
-            }
+        // Writes valid student data to Student Details file. The
+        // file is replaced in one step once it is fully written
+        try (FileTransaction transaction = new FileTransaction()) {
+            writeStudentDetails(transaction.open(fileName),
+                    course.snapshot());
+            transaction.commit();
         } catch (IOException e){
             throw new IOException("Error writing student details to file");
         }
     }
 
-    public void writeCourseDetails(String fileName) throws IOException{
-        // Get the student array object and filter it for valid students
-        Student[] studentArray = course.getStudentArray();
-        Student[] validStudents = validateStudents(studentArray);
+    private void writeStudentDetails(Writer writer,
+            RegisterSnapshot snapshot) throws IOException {
+        // Writes the header and every valid student to the writer
+        StudentRowEncoder encoder = new StudentRowEncoder();
+
+        // Write the header row
+        String header = "Name, Date of Birth, Gender, Study Mode, "
+                + "Year, Num of Modules, Fee\n";
+        writer.write(header);
+
+        // Write each valid student to the file. The encoder
+        // builds each row in a reused buffer
+        for (int i = 0; i < snapshot.end(); i++) {
+            Student student = snapshot.get(i);
+            if (student != null && student.hasAllDetails()) {
+                encoder.write(student, writer);
+            }
+        }
+    }
 
-        // Group valid students by study mode
-        course.groupStudentsByMode(validStudents);
+    public void writeCourseDetails(String fileName) throws IOException{
+        // Writes the course details file, replacing it in one step
+        // once it is fully written
+        try (FileTransaction transaction = new FileTransaction()) {
+            writeCourseDetails(transaction.open(fileName),
+                    course.snapshot());
+            transaction.commit();
+        } catch (IOException e){
+            throw new IOException("Error writing course details to file");
+        }
+    }
 
-        // Get the necessary data from the CourseManager object
-        Student[] ftStudents = course.getFTStudentArray();
-        Student[] ptStudents = course.getPTStudentArray();
+    private void writeCourseDetails(Writer writer,
+            RegisterSnapshot snapshot) throws IOException {
+        // Get the counts of the valid students, which the course
+        // keeps up to date as students are added and deleted
+        CourseStatistics stats = snapshot.getValidStatistics();
         String courseName = course.getCourseName();
-        int numStudents = course.getNumOfStudents(validStudents);
-
-        // Calculate percentage of genders 
-        double ftFemalePercentage = course
-                .calcGenderPercent(ftStudents, "F");
-        double ftMalePercentage = course
-                .calcGenderPercent(ftStudents, "M");
-        double ptFemalePercentage = course
-                .calcGenderPercent(ptStudents, "F");
-        double ptMalePercentage = course
-                .calcGenderPercent(ptStudents, "M");
+
+        // Get the percentage of genders in each study mode
+        double ftFemalePercentage = stats.getGenderPercent("FT", "F");
+        double ftMalePercentage = stats.getGenderPercent("FT", "M");
+        double ptFemalePercentage = stats.getGenderPercent("PT", "F");
+        double ptMalePercentage = stats.getGenderPercent("PT", "M");
 
         // Build the string of course details using string formatting
         String courseDetails = String
@@ -236,16 +389,12 @@ public class FileIO {
                 + "Number of Part Time Students: %d\n"
                 + "Female Percentage: %.2f%%\n"
                 + "Male Percentage: %.2f%%",
-                courseName, numStudents, ftStudents.length,
-                ftFemalePercentage, ftMalePercentage, ptStudents.length,
+                courseName, stats.getNumOfStudents(),
+                stats.getNumInMode("FT"), ftFemalePercentage,
+                ftMalePercentage, stats.getNumInMode("PT"),
                 ptFemalePercentage, ptMalePercentage);
 
-        // Write the string of course details to the file   
-        try (BufferedWriter bufferedWriter = new BufferedWriter
-                (new FileWriter(fileName))) {
-            bufferedWriter.write(courseDetails);
-        } catch (IOException e){
-            throw new IOException("Error writing course details to file");
-        }
+        // Write the string of course details to the writer
+        writer.write(courseDetails);
     }
 }
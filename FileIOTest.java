@@ -1,6 +1,14 @@
+import enrolmentregister.BulkImporter;
+import enrolmentregister.CourseCatalogue;
 import enrolmentregister.CourseManager;
+import enrolmentregister.FeeRules;
+import enrolmentregister.FeeRulesWatcher;
+import enrolmentregister.FeeTable;
 import enrolmentregister.FileIO;
+import enrolmentregister.FileTransaction;
+import enrolmentregister.PersistenceScheduler;
 import enrolmentregister.Student;
+import enrolmentregister.StudentRowEncoder;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -9,6 +17,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -17,6 +28,8 @@ public class FileIOTest {
     private CourseManager course;
     private FileIO fileIO;
     private SimpleDateFormat format;
+    // Directories made by a test, deleted with all they hold after it
+    private final List<File> tempDirectories = new ArrayList<>();
 
     @Before
     public void setUp() {
@@ -24,6 +37,30 @@ public class FileIOTest {
         fileIO = new FileIO(course);
         format = new SimpleDateFormat("dd/MM/yyyy");
     }
+
+    @After
+    public void tearDown() {
+        for (File directory : tempDirectories) {
+            deleteTree(directory);
+        }
+    }
+
+    private File createTempDirectory(String prefix) throws IOException {
+        File directory = java.nio.file.Files.createTempDirectory(prefix)
+                .toFile();
+        tempDirectories.add(directory);
+        return directory;
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
     
     /*
     * java.nio.file.Files Class is referenced from Digital Ocean website
@@ -77,6 +114,60 @@ public class FileIOTest {
     
     }
     
+    @Test
+    public void testReadStudentFile_BlankLines() throws IOException,
+            ParseException {
+        // This test checks that blank lines in the student file
+        // are skipped and Windows line endings are read
+        File tempFile = File.createTempFile("TempFile", ".txt");
+        tempFile.deleteOnExit();
+        String fileContent = "Name, Date of Birth, Gender, Study Mode,"
+                + "Num of Modules, Fee\r\n"
+                + "John Doe, 01/01/2000, M, FT, 1, 6, 5000\r\n"
+                + "\r\n"
+                + "Jane Smith, 01/01/2001, F, PT, 2, 4, 3000\r\n";
+        java.nio.file.Files.write(tempFile.toPath(), fileContent.getBytes());
+
+        fileIO.readStudentDetails(tempFile.getPath());
+        Student[] students = course.getStudentArray();
+        assertEquals(2, course.getNumOfStudents());
+        assertEquals("Jane Smith", students[1].getName());
+        assertEquals(3000, students[1].getFee());
+    }
+    
+    @Test
+    public void testReadStudentFile_Mapped() throws IOException,
+            ParseException {
+        // This test checks that the memory mapped loader reads the
+        // same students in the same order as the streaming reader
+        File tempFile = File.createTempFile("TempFile", ".txt");
+        tempFile.deleteOnExit();
+        StringBuilder fileContent = new StringBuilder("Name, Date of Birth,"
+                + " Gender, Study Mode, Year, Num of Modules, Fee\n");
+        for (int i = 0; i < 500; i++) {
+            fileContent.append("Student No").append((char) ('a' + i % 26))
+                    .append(", 01/0").append(1 + i % 9).append("/2000, ")
+                    .append(i % 2 == 0 ? "M" : "F").append(", FT, ")
+                    .append(1 + i % 4).append(", 6, ").append(i)
+                    .append(i % 7 == 0 ? "\r\n" : "\n");
+        }
+        java.nio.file.Files.write(tempFile.toPath(),
+                fileContent.toString().getBytes());
+
+        fileIO.setLoadMode(FileIO.LoadMode.MAPPED);
+        fileIO.readStudentDetailsMapped(tempFile.getPath());
+        Student[] mapped = course.getStudentArray();
+        assertEquals(500, course.getNumOfStudents());
+
+        fileIO.readStudentDetails(tempFile.getPath());
+        Student[] streamed = course.getStudentArray();
+        for (int i = 0; i < 500; i++) {
+            assertEquals(streamed[i].getName(), mapped[i].getName());
+            assertEquals(streamed[i].getDOB(), mapped[i].getDOB());
+            assertEquals(i, mapped[i].getFee());
+        }
+    }
+    
     @Test
     public void testReadStudentFile_EmptyFile() throws IOException, 
             ParseException {
@@ -170,6 +261,593 @@ public class FileIOTest {
         }
     }
     
+    @Test
+    public void testFileTransaction_RecoverAfterCrash() throws IOException {
+        // This test checks that a save which crashed after its commit
+        // marker was written is finished by recover(), including a
+        // file it deletes, and that a save which crashed before it
+        // leaves the files unchanged
+        File directory = createTempDirectory("TempRegister");
+        File students = new File(directory, "StudentDetails.txt");
+        File courses = new File(directory, "CourseDetails.txt");
+        java.nio.file.Files.write(students.toPath(), "old".getBytes());
+        java.nio.file.Files.write(courses.toPath(), "old".getBytes());
+
+        // Crash after the student file was renamed but before the
+        // course file was
+        File courseTemp = new File(directory, "CourseDetails.txt.tmp");
+        java.nio.file.Files.write(students.toPath(), "new".getBytes());
+        java.nio.file.Files.write(courseTemp.toPath(), "new".getBytes());
+        File marker = new File(directory, FileTransaction.MARKER_NAME);
+        File binary = new File(directory, "StudentDetails.bin");
+        java.nio.file.Files.write(binary.toPath(), "old".getBytes());
+        java.nio.file.Files.write(marker.toPath(), (students
+                .getAbsolutePath() + "\n" + courses.getAbsolutePath()
+                + "\n-" + binary.getAbsolutePath() + "\n").getBytes());
+
+        FileTransaction.recover(directory.getPath());
+        assertEquals("new", new String(java.nio.file.Files
+                .readAllBytes(courses.toPath())));
+        assertFalse(binary.exists());
+        assertFalse(marker.exists());
+        assertFalse(courseTemp.exists());
+
+        // Crash before the marker: the temp file is discarded
+        java.nio.file.Files.write(courseTemp.toPath(), "half".getBytes());
+        FileTransaction.recover(directory.getPath());
+        FileTransaction.discardTemp(courses.getPath());
+        assertEquals("new", new String(java.nio.file.Files
+                .readAllBytes(courses.toPath())));
+        assertFalse(courseTemp.exists());
+    }
+    
+    @Test
+    public void testJournal_ReplayAndCompact() throws IOException,
+            ParseException {
+        // This test checks that adds and deletes written to the
+        // journal are replayed onto the saved students, that a
+        // record cut short by a crash is ignored, and that
+        // compaction empties the journal
+        File journalFile = File.createTempFile("TempJournal", ".journal");
+        journalFile.deleteOnExit();
+        Student[] students = new Student[2];
+        students[0] = new Student("John Doe", format.parse("01/01/2000"),
+                "M", "FT", 1, 6, 6000);
+        students[1] = new Student("Jane Doe", format.parse("06/06/2001"),
+                "F", "PT", 2, 4, 3000);
+        course.setStudentArray(students.clone());
+        fileIO.openJournal(journalFile.getPath());
+
+        course.addStudent(new Student("Amy Lee", format.parse(
+                "02/02/2002"), "F", "FT", 3, 6, 6000));
+        course.deleteStudent(course.findStudentIndex("John Doe"));
+        // Students missing details are not saved, so not journaled
+        course.addStudent(new Student());
+        assertEquals(2, fileIO.getJournal().getNumOfRecords());
+        java.nio.file.Files.write(journalFile.toPath(), "A Half".getBytes(),
+                java.nio.file.StandardOpenOption.APPEND);
+
+        // Replay onto the students as they were last saved
+        CourseManager replayed = new CourseManager();
+        replayed.setStudentArray(students.clone());
+        FileIO replayedIO = new FileIO(replayed);
+        replayedIO.openJournal(journalFile.getPath());
+        Student[] result = replayed.getStudentArray();
+        assertEquals(2, replayed.getNumOfStudents());
+        assertEquals("Jane Doe", result[0].getName());
+        assertEquals("Amy Lee", result[1].getName());
+        assertTrue(replayed.checkStatistics());
+        replayedIO.getJournal().close();
+
+        // Reaching the limit saves the files and empties the journal
+        fileIO.getJournal().setCompactAfter(3);
+        course.deleteStudent(course.findStudentIndex("Amy Lee"));
+        assertEquals(0, fileIO.getJournal().getNumOfRecords());
+        assertEquals(0, journalFile.length());
+        fileIO.getJournal().close();
+    }
+
+    @Test
+    public void testStudentSnapshot_ConvertBothWays() throws IOException,
+            ParseException {
+        // This test checks that converting the student file to a
+        // binary snapshot and back gives the same file, and that
+        // a snapshot of another version is rejected
+        File textFile = File.createTempFile("TempStudentDetails", ".txt");
+        File binaryFile = File.createTempFile("TempStudentDetails", ".bin");
+        File backFile = File.createTempFile("TempStudentDetails", ".txt");
+        textFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+        backFile.deleteOnExit();
+        String text = "Name, Date of Birth, Gender, Study Mode, Year, "
+                + "Num of Modules, Fee\n"
+                + "John Doe, 01/01/2000, M, FT, 1, 6, 6000\n"
+                + "Mary-Ann Smith, 31/12/1969, F, PT, 4, 2, 1500\n"
+                + "Jane Doe, 29/02/1600, F, FT, 2, 3, 6000\n";
+        java.nio.file.Files.write(textFile.toPath(), text.getBytes());
+
+        fileIO.convertToBinary(textFile.getPath(), binaryFile.getPath());
+        fileIO.convertToText(binaryFile.getPath(), backFile.getPath());
+        assertEquals(text, new String(java.nio.file.Files
+                .readAllBytes(backFile.toPath())));
+
+        fileIO.readStudentSnapshot(binaryFile.getPath());
+        Student[] students = course.getStudentArray();
+        assertEquals(3, course.getNumOfStudents());
+        assertEquals("Mary-Ann Smith", students[1].getName());
+        assertEquals(format.parse("31/12/1969"), students[1].getDOB());
+        assertEquals(1500, students[1].getFee());
+
+        // Change the version after the magic number
+        byte[] bytes = java.nio.file.Files.readAllBytes(binaryFile.toPath());
+        bytes[5] = 99;
+        try {
+            new enrolmentregister.StudentSnapshot().read(
+                    java.nio.ByteBuffer.wrap(bytes));
+            fail("Expected IOException to be thrown");
+        } catch (IOException e) {
+            assertEquals("Unsupported snapshot version 99", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testWriteFiles_TextOnlyRemovesOldSnapshot()
+            throws IOException, ParseException {
+        // This test checks that saving without the binary snapshot
+        // removes the snapshot of an earlier save, so turning it on
+        // again loads the newer student file
+        File directory = createTempDirectory("TempCourse");
+        File binaryFile = new File(directory, "StudentDetails.bin");
+        course.setCourseName("Biology");
+        FileIO courseIO = new FileIO(course, directory);
+        courseIO.setBinarySnapshot(true);
+        course.addStudent(new Student("John Doe", format.parse("01/01/2000"),
+                "M", "FT", 1, 6, 5000));
+        courseIO.writeFiles();
+        assertTrue(binaryFile.exists());
+
+        courseIO.setBinarySnapshot(false);
+        course.addStudent(new Student("Jane Doe", format.parse("01/01/2001"),
+                "F", "PT", 2, 4, 3000));
+        courseIO.writeFiles();
+        assertFalse(binaryFile.exists());
+        assertFalse(new File(directory, FileTransaction.MARKER_NAME)
+                .exists());
+
+        CourseManager loaded = new CourseManager();
+        FileIO loadedIO = new FileIO(loaded, directory);
+        loadedIO.setBinarySnapshot(true);
+        loadedIO.readFiles();
+        loadedIO.closeJournal();
+        assertEquals(2, loaded.getNumOfStudents());
+    }
+
+    @Test
+    public void testBulkImport() throws IOException {
+        // This test checks that valid rows are imported in file
+        // order with their fees worked out, and that rejected rows
+        // are written to the rejects file with their line number
+        File importFile = File.createTempFile("TempImport", ".csv");
+        File rejectsFile = File.createTempFile("TempRejects", ".txt");
+        importFile.deleteOnExit();
+        rejectsFile.deleteOnExit();
+        String fileContent = "Name, Date of Birth, Gender, Study Mode, "
+                + "Year, Num of Modules, Fee\n"
+                + "john doe, 01/01/2000, m, ft, 3, 6, 99\n"
+                + "Jane Doe, 1/6/2001, F, PT, 2, 4\n"
+                + "\n"
+                + "Bob Smith1, 01/01/2000, M, FT, 1, 6\n"
+                + "Amy Lee, 31/02/2000, F, FT, 1, 6\n"
+                + "Tom Hill, 01/01/2000, M, FT\n"
+                + "Sam Ray,01/01/1999,M,PT,4,2\n"
+                + "Ann Fox, 01/01/2000, F, FT, 1, 6, 2500, x\n";
+        java.nio.file.Files.write(importFile.toPath(), fileContent.getBytes());
+
+        BulkImporter.Result result = new BulkImporter(course, 2, 2)
+                .importFile(importFile.getPath(), rejectsFile.getPath());
+        assertEquals(3, result.getNumImported());
+        assertEquals(4, result.getNumRejected());
+
+        Student[] students = course.getStudentArray();
+        assertEquals("John Doe", students[0].getName());
+        assertEquals("FT", students[0].getStudyMode());
+        assertEquals(2500, students[0].getFee());
+        assertEquals("Jane Doe", students[1].getName());
+        assertEquals(3000, students[1].getFee());
+        assertEquals("Sam Ray", students[2].getName());
+        assertEquals(1500, students[2].getFee());
+
+        try (BufferedReader reader = new BufferedReader(
+                new FileReader(rejectsFile))) {
+            assertEquals("Line 5: Name: Name has characters that are not "
+                    + "letters: Bob Smith1, 01/01/2000, M, FT, 1, 6",
+                    reader.readLine());
+            assertTrue(reader.readLine().startsWith("Line 6: Date of birth"));
+            assertTrue(reader.readLine().startsWith(
+                    "Line 7: Row has 4 fields instead of 6"));
+            assertTrue(reader.readLine().startsWith(
+                    "Line 9: Row has 8 fields instead of 6, or 7 with "
+                    + "the fee"));
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testBulkImport_NoHeaderAndFailedRejects() throws IOException {
+        // This test checks that a first row is only skipped if it is
+        // the whole header, and that no student is added when the
+        // rejects file cannot be saved
+        File importFile = File.createTempFile("TempImport", ".csv");
+        File rejectsFile = File.createTempFile("TempRejects", ".txt");
+        importFile.deleteOnExit();
+        rejectsFile.deleteOnExit();
+        java.nio.file.Files.write(importFile.toPath(),
+                ("Nameer Ali, 01/01/2000, M, FT, 1, 6\n"
+                + "Jane Doe, 1/6/2001, F, PT, 2, 4\n").getBytes());
+
+        BulkImporter.Result result = new BulkImporter(course, 2, 1)
+                .importFile(importFile.getPath(), rejectsFile.getPath());
+        assertEquals(2, result.getNumImported());
+        assertEquals(0, result.getNumRejected());
+        assertEquals("Nameer Ali", course.getStudentArray()[0].getName());
+
+        // A directory that is not empty cannot be replaced by the
+        // rejects file
+        File rejectsDir = new File(createTempDirectory("TempRejects"),
+                "Rejects");
+        assertTrue(rejectsDir.mkdir());
+        assertTrue(new File(rejectsDir, "Keep.txt").createNewFile());
+        try {
+            new BulkImporter(course, 2, 1).importFile(importFile.getPath(),
+                    rejectsDir.getPath());
+            fail("Expected the rejects file not to be saved");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(2, course.getNumOfStudents());
+    }
+
+    @Test
+    public void testFeeRules_ReloadAndReprice() throws IOException,
+            ParseException {
+        // This test checks that the standard fee rules file prices
+        // like Student.calcFee, that a changed file is reloaded and
+        // reprices the course as it is published, counting only the
+        // students whose fee changed, and that a bad file keeps the
+        // rules in use and is not read again until it changes
+        FeeTable standard = FeeRules.parse(FeeRules.STANDARD_TEXT).compile();
+        for (String mode : new String[] {"FT", "PT", "XX", null}) {
+            for (int year = 0; year <= 5; year++) {
+                for (int modules = 0; modules <= 7; modules++) {
+                    assertEquals(Student.calcFee(mode, year, modules),
+                            standard.feeOf(mode, year, modules));
+                }
+            }
+        }
+
+        File rulesFile = File.createTempFile("TempFeeRules", ".txt");
+        rulesFile.deleteOnExit();
+        course.addStudent(new Student("John Doe", format.parse("01/01/2000"),
+                "M", "FT", 1, 6, 5000));
+        course.addStudent(new Student("Jane Doe", format.parse("01/01/2001"),
+                "F", "PT", 2, 4, 3000));
+        int[] numChanged = {0};
+        course.setChangeListener(n -> numChanged[0] += n);
+        FeeRulesWatcher watcher = new FeeRulesWatcher(rulesFile.getPath());
+        watcher.setReloadListener(course::recomputeFees);
+        try {
+            java.nio.file.Files.write(rulesFile.toPath(), ("Study Mode, "
+                    + "Year, Fee, Fee per Module\n"
+                    + "FT, Any, 6000, 0\n"
+                    + "PT, Any, 100, 800\n").getBytes());
+            assertTrue(watcher.reloadIfChanged());
+            assertFalse(watcher.reloadIfChanged());
+            assertFalse(course.recomputeFees());
+            assertEquals(6000, course.getStudentArray()[0].getFee());
+            assertEquals(3300, course.getStudentArray()[1].getFee());
+            assertEquals(2, numChanged[0]);
+
+            // Rules that give the same fees change no student
+            java.nio.file.Files.write(rulesFile.toPath(), ("Study Mode, "
+                    + "Year, Fee, Fee per Module\n"
+                    + "FT, Any, 6000, 0\n"
+                    + "PT, Any, 100, 800\n"
+                    + "XX, Any, 0, 0\n").getBytes());
+            assertTrue(watcher.reloadIfChanged());
+            assertEquals(2, numChanged[0]);
+
+            FeeTable current = FeeTable.current();
+            java.nio.file.Files.write(rulesFile.toPath(),
+                    "FT, Any, 6000\n".getBytes());
+            try {
+                watcher.reloadIfChanged();
+                fail("Expected a ParseException");
+            } catch (ParseException e) {
+                assertEquals("Fee rules line 1: Line has 3 fields "
+                        + "instead of 4", e.getMessage());
+            }
+            assertSame(current, FeeTable.current());
+            assertFalse(watcher.reloadIfChanged());
+            assertSame(current, FeeTable.current());
+        } finally {
+            watcher.close();
+            FeeTable.publish(FeeTable.STANDARD);
+        }
+    }
+
+    @Test
+    public void testCourseCatalogue_LazyLoadAndEvict() throws IOException,
+            ParseException {
+        // This test checks that courses are loaded on first use from
+        // their own directory, that the least recently used course
+        // is dropped when over the memory budget and saved only if
+        // it changed, and that a course that cannot be saved is kept
+        // without failing the course asked for
+        File root = createTempDirectory("TempCourses");
+        String[] names = {"Biology", "Chemistry", "Physics"};
+        for (String name : names) {
+            File directory = new File(root, name);
+            directory.mkdir();
+            java.nio.file.Files.write(new File(directory,
+                    "StudentDetails.txt").toPath(), ("Name, Date of Birth, "
+                    + "Gender, Study Mode, Year, Num of Modules, Fee\n"
+                    + "John Doe, 01/01/2000, M, FT, 1, 6, 5000\n")
+                    .getBytes());
+        }
+
+        // Room for two courses with three students between them
+        long budget = 2 * CourseCatalogue.BYTES_PER_COURSE
+                + 3 * CourseCatalogue.BYTES_PER_STUDENT;
+        try (CourseCatalogue catalogue = new CourseCatalogue(root, budget)) {
+            assertEquals(java.util.Arrays.asList(names),
+                    catalogue.getCourseNames());
+            assertFalse(catalogue.isLoaded("Biology"));
+
+            CourseManager biology = catalogue.getCourse("Biology");
+            assertEquals("Biology", biology.getCourseName());
+            assertEquals(1, biology.getNumOfStudents());
+            assertSame(biology, catalogue.getCourse("Biology"));
+            biology.addStudent(new Student("Jane Doe",
+                    format.parse("01/01/2001"), "F", "PT", 2, 4, 3000));
+
+            catalogue.getCourse("Chemistry");
+            catalogue.getCourse("Biology");
+            catalogue.getCourse("Physics");
+            assertEquals(1, catalogue.getNumOfEvictions());
+            assertEquals(java.util.Arrays.asList("Biology", "Physics"),
+                    catalogue.getLoadedCourseNames());
+            // Chemistry did not change, so it was not written
+            assertEquals(0, new File(root, "Chemistry/CourseDetails.txt")
+                    .length());
+
+            // Biology is now the least recently used, so it is
+            // dropped and its new student is read back from its file
+            catalogue.getCourse("Chemistry");
+            assertFalse(catalogue.isLoaded("Biology"));
+            // The dropped course can no longer be changed
+            assertTrue(biology.isClosed());
+            try {
+                biology.addStudent(new Student("Amy Lee",
+                        format.parse("01/01/2002"), "F", "FT", 1, 6, 5000));
+                fail("Expected an IllegalStateException");
+            } catch (IllegalStateException e) {
+                assertEquals("Course Biology is closed and cannot be "
+                        + "changed", e.getMessage());
+            }
+            assertTrue(new File(root, "Biology/CourseDetails.txt")
+                    .length() > 0);
+            assertEquals(2, catalogue.getCourse("Biology")
+                    .getNumOfStudents());
+            assertNull(catalogue.getLastEvictionError());
+
+            // Physics changes, then its directory goes away, so it
+            // cannot be saved when it is to be dropped
+            CourseManager physics = catalogue.getCourse("Physics");
+            physics.addStudent(new Student("Amy Lee",
+                    format.parse("01/01/2002"), "F", "FT", 1, 6, 5000));
+            File physicsDirectory = new File(root, "Physics");
+            for (File file : physicsDirectory.listFiles()) {
+                file.delete();
+            }
+            physicsDirectory.delete();
+            catalogue.getCourse("Chemistry");
+            assertEquals(2, catalogue.getCourse("Biology")
+                    .getNumOfStudents());
+            assertTrue(catalogue.isLoaded("Physics"));
+            assertNotNull(catalogue.getLastEvictionError());
+            physicsDirectory.mkdir();
+
+            try {
+                catalogue.getCourse("../Biology");
+                fail("Expected an IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Invalid course name: ../Biology",
+                        e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testCourseCatalogue_LoadAll() throws IOException,
+            ParseException, InterruptedException {
+        // This test checks that loading every course at startup
+        // loads the courses with files, reports each one, that a
+        // course that fails to load does not stop the others, and
+        // that a course asked for while loadAll runs is loaded once
+        File root = createTempDirectory("TempCourses");
+        String header = "Name, Date of Birth, Gender, Study Mode, Year, "
+                + "Num of Modules, Fee\n";
+        String[][] courses = {
+            {"Biology", header + "John Doe, 01/01/2000, M, FT, 1, 6, 5000\n"
+                    + "Jane Doe, 01/01/2001, F, PT, 2, 4, 3000\n"},
+            {"Chemistry", header + "John Doe, 01/01/2000, M, FT, 1, 6\n"},
+            {"Physics", header}
+        };
+        for (String[] course : courses) {
+            File directory = new File(root, course[0]);
+            directory.mkdir();
+            java.nio.file.Files.write(new File(directory,
+                    "StudentDetails.txt").toPath(), course[1].getBytes());
+        }
+        new File(root, "Empty").mkdir();
+
+        try (CourseCatalogue catalogue = new CourseCatalogue(root,
+                Long.MAX_VALUE)) {
+            assertEquals(java.util.Arrays.asList("Biology", "Chemistry",
+                    "Physics"), catalogue.findCourseFiles());
+            CourseManager[] physics = new CourseManager[1];
+            Thread lookup = new Thread(() -> {
+                try {
+                    physics[0] = catalogue.getCourse("Physics");
+                } catch (IOException | ParseException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            lookup.start();
+            java.util.List<CourseCatalogue.LoadResult> results
+                    = catalogue.loadAll(2);
+            lookup.join();
+            assertSame(physics[0], catalogue.getCourse("Physics"));
+            // Physics is left out if the lookup started loading it
+            assertTrue(results.size() == 2 || results.size() == 3);
+            assertTrue(results.get(0).isLoaded());
+            assertEquals(2, results.get(0).getNumOfStudents());
+            assertFalse(results.get(1).isLoaded());
+            assertTrue(results.get(1).getError() instanceof ParseException);
+            assertTrue(results.get(1).toString().startsWith(
+                    "Chemistry: failed after "));
+            assertTrue(results.size() == 2 || results.get(2).isLoaded());
+
+            assertEquals(java.util.Arrays.asList("Biology", "Physics"),
+                    catalogue.getLoadedCourseNames());
+            assertFalse(catalogue.isLoaded("Empty"));
+            // Only the course that failed is tried again
+            assertEquals(1, catalogue.loadAll(2).size());
+        }
+    }
+
+    @Test
+    public void testPersistenceScheduler_SavesChangesInBackground()
+            throws IOException, ParseException, InterruptedException {
+        // This test checks that changes are saved once enough are
+        // made, that a burst of changes is saved once, and that
+        // closing saves the changes not yet saved
+        File directory = createTempDirectory("TempCourse");
+        CourseManager course = new CourseManager();
+        course.setCourseName("Biology");
+        course.setConcurrent(true);
+        FileIO fileIO = new FileIO(course, directory);
+        File studentFile = new File(directory, "StudentDetails.txt");
+
+        PersistenceScheduler saver = new PersistenceScheduler(fileIO,
+                1, java.util.concurrent.TimeUnit.HOURS, 2);
+        try {
+            course.addStudent(new Student("John Doe",
+                    format.parse("01/01/2000"), "M", "FT", 1, 6, 5000));
+            assertEquals(1, saver.getNumOfPendingChanges());
+            saver.flush();
+            assertEquals(1, saver.getNumOfSaves());
+            assertEquals(0, saver.getNumOfPendingChanges());
+            assertTrue(studentFile.exists());
+
+            // Nothing changed, so nothing is saved
+            saver.flush();
+            assertEquals(1, saver.getNumOfSaves());
+
+            course.addStudent(new Student("Jane Doe",
+                    format.parse("01/01/2001"), "F", "PT", 2, 4, 3000));
+            course.addStudent(new Student("Amy Lee",
+                    format.parse("01/01/2002"), "F", "FT", 1, 6, 5000));
+            saver.flush();
+            assertEquals(2, saver.getNumOfSaves());
+
+            course.deleteStudent("John Doe");
+        } finally {
+            saver.close();
+        }
+        assertEquals(3, saver.getNumOfSaves());
+        assertEquals(0, saver.getNumOfPendingChanges());
+
+        CourseManager loaded = new CourseManager();
+        new FileIO(loaded, directory).readFiles();
+        assertEquals("Biology", loaded.getCourseName());
+        assertEquals(2, loaded.getNumOfStudents());
+        assertEquals(-1, loaded.findStudentIndex("John Doe"));
+    }
+
+    @Test
+    public void testWriteFiles_WhileDeleting() throws IOException,
+            ParseException, InterruptedException {
+        // This test checks that students deleted while the course is
+        // saved on another thread stay deleted, whether the save or
+        // the journal holds the delete
+        File directory = createTempDirectory("TempCourse");
+        CourseManager shared = new CourseManager();
+        shared.setCourseName("Biology");
+        shared.setConcurrent(true);
+        FileIO sharedIO = new FileIO(shared, directory);
+        sharedIO.readFiles();
+        java.util.Date dob = format.parse("01/01/2000");
+        for (int i = 0; i < 400; i++) {
+            shared.addStudent(new Student("Student " + i, dob, "F", "PT",
+                    1, 2, 1500));
+        }
+
+        IOException[] error = new IOException[1];
+        Thread saver = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++) {
+                    sharedIO.writeFiles();
+                }
+            } catch (IOException e) {
+                error[0] = e;
+            }
+        });
+        saver.start();
+        for (int i = 0; i < 400; i += 2) {
+            shared.deleteStudent(shared.findStudentIndex("Student " + i));
+        }
+        saver.join();
+        sharedIO.closeJournal();
+        if (error[0] != null) {
+            throw error[0];
+        }
+
+        CourseManager loaded = new CourseManager();
+        FileIO loadedIO = new FileIO(loaded, directory);
+        loadedIO.readFiles();
+        loadedIO.closeJournal();
+        assertEquals(200, loaded.getNumOfStudents());
+        assertEquals(-1, loaded.findStudentIndex("Student 0"));
+        assertEquals(-1, loaded.findStudentIndex("Student 398"));
+    }
+
+    @Test
+    public void testStudentRowEncoder_MatchesFormat() throws ParseException {
+        // This test checks that the row encoder writes exactly what
+        // String.format wrote for each student
+        Student[] students = {
+            new Student("John Doe", format.parse("01/01/2000"),
+                    "M", "FT", 1, 6, 5000),
+            new Student("Jane Doe", format.parse("31/12/1999"),
+                    "F", "PT", 4, 0, -750),
+            new Student(null, format.parse("29/02/2004"),
+                    "F", "PT", 10, 123456, Integer.MIN_VALUE)
+        };
+        StudentRowEncoder encoder = new StudentRowEncoder();
+        for (int round = 0; round < 2; round++) {
+            for (Student student : students) {
+                String expected = String.format(
+                        "%s, %s, %s, %s, %d, %s, %s\n",
+                        student.getName(), student.getDOBStr(),
+                        student.getGender(), student.getStudyMode(),
+                        student.getYear(), student.getNumModules(),
+                        student.getFee());
+                assertEquals(expected, encoder.encodeToString(student));
+            }
+        }
+    }
+    
     //        students[2] = new Student("Mark Smith", null, 
 //                null, "FT", 1, 6, 6000);
 //        students[3] = new Student("Kelly Mindy", format.parse("01/10/2004"), 
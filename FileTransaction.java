@@ -0,0 +1,229 @@
+package enrolmentregister;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+* This class saves one or more files as a single unit.
+* Each file is written to a temporary file next to it. On commit
+* every temporary file is synced to disk once, then renamed over
+* its target. When several files are saved together, a commit
+* marker listing them is synced before the first rename, so that
+* recover() can finish the renames after a crash. A crash before
+* the marker leaves every target as it was. A file can also be
+* deleted as part of the unit, after the renames.
+*/
+
+public class FileTransaction implements Closeable {
+
+    public static final String MARKER_NAME = ".commit";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Starts the lines of the marker that name a file to delete
+    private static final String DELETE_PREFIX = "-";
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final List<Path> targets = new ArrayList<>();
+    private final List<Path> temps = new ArrayList<>();
+    private final List<FileOutputStream> streams = new ArrayList<>();
+    // The buffered writer or stream over each temporary file
+    private final List<Closeable> buffers = new ArrayList<>();
+    private final List<Path> deletes = new ArrayList<>();
+    private boolean committed = false;
+    private boolean markerWritten = false;
+
+    public Writer open(String fileName) throws IOException {
+        // Returns a writer to a temporary file that replaces
+        // the given file when the transaction commits
+        FileOutputStream stream = openTemp(fileName);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream,
+                Charset.defaultCharset()), BUFFER_SIZE);
+        buffers.add(writer);
+        return writer;
+    }
+
+    public OutputStream openStream(String fileName) throws IOException {
+        // Returns a byte stream to a temporary file that replaces
+        // the given file when the transaction commits
+        OutputStream output = new BufferedOutputStream(openTemp(fileName),
+                BUFFER_SIZE);
+        buffers.add(output);
+        return output;
+    }
+
+    public void delete(String fileName) {
+        // Deletes the given file when the transaction commits, in
+        // the same unit as the files it replaces
+        deletes.add(Paths.get(fileName).toAbsolutePath());
+    }
+
+    private FileOutputStream openTemp(String fileName) throws IOException {
+        // Creates the temporary file next to the given file
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName()
+                + TEMP_SUFFIX);
+        FileOutputStream stream = new FileOutputStream(temp.toFile());
+        targets.add(target);
+        temps.add(temp);
+        streams.add(stream);
+        return stream;
+    }
+
+    public void commit() throws IOException {
+        // Syncs every temporary file, then renames them over
+        // their targets as one unit
+        for (int i = 0; i < buffers.size(); i++) {
+            ((Flushable) buffers.get(i)).flush();
+            // One sync per file, after all of it has been written
+            streams.get(i).getChannel().force(true);
+            buffers.get(i).close();
+        }
+
+        Path marker = null;
+        if (temps.size() + deletes.size() > 1) {
+            marker = writeMarker();
+            markerWritten = true;
+        }
+        for (int i = 0; i < temps.size(); i++) {
+            Files.move(temps.get(i), targets.get(i),
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        for (Path delete : deletes) {
+            Files.deleteIfExists(delete);
+        }
+        syncDirectories();
+        if (marker != null) {
+            Files.delete(marker);
+            syncDirectory(marker.getParent());
+        }
+        committed = true;
+    }
+
+    private Path writeMarker() throws IOException {
+        // Writes the list of targets, then the files to delete,
+        // next to the first of them and syncs it, which commits the
+        // transaction
+        Path marker = (targets.isEmpty() ? deletes.get(0) : targets.get(0))
+                .resolveSibling(MARKER_NAME);
+        StringBuilder lines = new StringBuilder();
+        for (Path target : targets) {
+            lines.append(target).append('\n');
+        }
+        for (Path delete : deletes) {
+            lines.append(DELETE_PREFIX).append(delete).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(marker,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(Charset.defaultCharset().encode(
+                    lines.toString()));
+            channel.force(true);
+        }
+        syncDirectory(marker.getParent());
+        return marker;
+    }
+
+    private void syncDirectories() {
+        // Syncs each directory that had a file renamed in it once
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path target : targets) {
+            directories.add(target.getParent());
+        }
+        for (Path delete : deletes) {
+            directories.add(delete.getParent());
+        }
+        for (Path directory : directories) {
+            syncDirectory(directory);
+        }
+    }
+
+    private static void syncDirectory(Path directory) {
+        // Makes renames in the directory durable. Some systems
+        // cannot open a directory, and there the rename is left
+        // to the file system
+        try (FileChannel channel = FileChannel.open(directory,
+                StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync is not supported here
+        }
+    }
+
+    public static void recover(String directoryName) throws IOException {
+        // Finishes the renames and deletes of a transaction in the
+        // directory that crashed after its commit marker was written
+        Path directory = Paths.get(directoryName).toAbsolutePath();
+        Path marker = directory.resolve(MARKER_NAME);
+        if (Files.exists(marker)) {
+            for (String line : Files.readAllLines(marker,
+                    Charset.defaultCharset())) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith(DELETE_PREFIX)) {
+                    Path delete = Paths.get(line.substring(
+                            DELETE_PREFIX.length()));
+                    Files.deleteIfExists(delete);
+                    syncDirectory(delete.getParent());
+                    continue;
+                }
+                Path target = Paths.get(line);
+                Path temp = target.resolveSibling(target.getFileName()
+                        + TEMP_SUFFIX);
+                // Files renamed before the crash have no temp left
+                if (Files.exists(temp)) {
+                    Files.move(temp, target,
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                syncDirectory(target.getParent());
+            }
+            Files.delete(marker);
+            syncDirectory(directory);
+        }
+    }
+
+    public static void discardTemp(String fileName) throws IOException {
+        // Removes a temporary file left by a transaction that
+        // crashed before it committed
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Files.deleteIfExists(target.resolveSibling(target.getFileName()
+                + TEMP_SUFFIX));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Removes the temporary files if the transaction did not
+        // commit. Once the marker is written the temporary files
+        // are kept so recover() can finish the renames
+        if (committed || markerWritten) {
+            return;
+        }
+        for (Closeable buffer : buffers) {
+            try {
+                buffer.close();
+            } catch (IOException e) {
+                // The temporary file is removed below anyway
+            }
+        }
+        for (Path temp : temps) {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
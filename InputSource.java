@@ -0,0 +1,25 @@
+package enrolmentregister;
+
+import java.util.Scanner;
+
+/*
+* This interface is where the prompts of the register read the
+* lines typed by the user. The console reads System.in, and tests
+* or other front ends can pass any other source of lines.
+*/
+
+public interface InputSource {
+
+    // Returns the next line of input without its line ending
+    String nextLine();
+
+    static InputSource of(Scanner scanner) {
+        // Returns a source that reads lines from the scanner
+        return scanner::nextLine;
+    }
+
+    static InputSource console() {
+        // Returns the shared source that reads System.in
+        return ConsoleInput.INSTANCE;
+    }
+}
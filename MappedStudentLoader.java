@@ -0,0 +1,218 @@
+package enrolmentregister;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+* This class loads a large Student Details file by memory
+* mapping it and parsing it in parallel.
+* The file is split into chunks that start and end on line
+* boundaries. Each chunk is mapped and parsed on its own thread
+* and the chunks are then added to the register in file order.
+*/
+
+public class MappedStudentLoader {
+
+    // A chunk is mapped in one piece, so it must stay well
+    // under the 2 GB limit of a MappedByteBuffer
+    private static final long MAX_CHUNK_SIZE = 256L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MAX_LINE_LENGTH = 1 << 16;
+
+    private final int numOfThreads;
+    private final Charset charset = Charset.defaultCharset();
+
+    public MappedStudentLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public MappedStudentLoader(int numOfThreads) {
+        this.numOfThreads = Math.max(numOfThreads, 1);
+    }
+
+    public StudentRegister load(String fileName) throws IOException,
+            ParseException {
+        // Reads every student in the file, after the header
+        // row, into a new register
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.READ)) {
+            long[] bounds = findChunkBounds(channel);
+            int numOfChunks = bounds.length - 1;
+
+            ExecutorService pool = Executors.newFixedThreadPool(
+                    Math.min(numOfThreads, Math.max(numOfChunks, 1)));
+            try {
+                List<Future<List<Student>>> chunks = new ArrayList<>();
+                for (int i = 0; i < numOfChunks; i++) {
+                    long start = bounds[i];
+                    long end = bounds[i + 1];
+                    chunks.add(pool.submit(
+                            () -> parseChunk(channel, start, end)));
+                }
+                return merge(chunks);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private long[] findChunkBounds(FileChannel channel) throws IOException {
+        // Returns the offsets where each chunk starts followed by
+        // the end of the file. The first chunk starts after the
+        // header row and every other chunk starts after a newline
+        long size = channel.size();
+        long first = nextLineStart(channel, 0, size);
+
+        long dataSize = size - first;
+        int numOfChunks = (int) Math.max(
+                (long) numOfThreads * CHUNKS_PER_THREAD,
+                (dataSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        numOfChunks = (int) Math.max(Math.min(numOfChunks, dataSize), 1);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(first);
+        for (int i = 1; i < numOfChunks; i++) {
+            long bound = nextLineStart(channel,
+                    first + dataSize * i / numOfChunks, size);
+            if (bound > bounds.get(bounds.size() - 1) && bound < size) {
+                bounds.add(bound);
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private long nextLineStart(FileChannel channel, long position,
+            long size) throws IOException {
+        // Returns the offset just after the first newline at or
+        // after position, or size if there is no newline
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private List<Student> parseChunk(FileChannel channel, long start,
+            long end) throws IOException, ParseException {
+        // Maps the chunk and parses each of its lines into a Student
+        List<Student> students = new ArrayList<>();
+        if (end <= start) {
+            return students;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                start, end - start);
+        StudentLineParser parser = new StudentLineParser();
+        byte[] lineBytes = new byte[256];
+        int limit = buffer.limit();
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int length = lineEnd - lineStart;
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                length--; // Windows line ending
+            }
+            if (length > MAX_LINE_LENGTH) {
+                throw new ParseException("Line at byte "
+                        + (start + lineStart) + " is too long", 0);
+            }
+            if (length > 0) {
+                if (length > lineBytes.length) {
+                    lineBytes = new byte[Math.max(length,
+                            lineBytes.length * 2)];
+                }
+                buffer.get(lineStart, lineBytes, 0, length);
+                String line = new String(lineBytes, 0, length, charset);
+                students.add(parse(parser, line, start + lineStart));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return students;
+    }
+
+    private Student parse(StudentLineParser parser, String line,
+            long offset) throws ParseException {
+        // Line numbers are not known inside a chunk, so errors
+        // report the byte offset of the line instead
+        try {
+            return parser.parse(line);
+        } catch (ParseException e) {
+            throw new ParseException("Line at byte " + offset + ": "
+                    + e.getMessage(), e.getErrorOffset());
+        }
+    }
+
+    private StudentRegister merge(List<Future<List<Student>>> chunks)
+            throws IOException, ParseException {
+        // Waits for every chunk and adds its students to a new
+        // register in file order
+        List<List<Student>> parsed = new ArrayList<>();
+        int numOfStudents = 0;
+        for (Future<List<Student>> chunk : chunks) {
+            List<Student> students = await(chunk);
+            parsed.add(students);
+            numOfStudents += students.size();
+        }
+
+        StudentRegister register = new StudentRegister(numOfStudents);
+        for (List<Student> students : parsed) {
+            for (Student student : students) {
+                register.add(student);
+            }
+        }
+        return register;
+    }
+
+    private List<Student> await(Future<List<Student>> chunk)
+            throws IOException, ParseException {
+        // Returns the students of the chunk, throwing the error
+        // the chunk failed with
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading students", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error loading students", cause);
+        }
+    }
+}
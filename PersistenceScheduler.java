@@ -0,0 +1,129 @@
+package enrolmentregister;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* This class saves a course in the background instead of only on
+* exit. Changes to the course are counted as they are made, and
+* the Student and Course Details files are saved on a dedicated
+* writer thread once the interval has passed or enough changes have
+* been made. Changes made while a save is queued are saved by that
+* save, so a burst of changes is saved once. Closing the scheduler
+* saves any changes not yet saved and waits only for that save. The
+* course must be concurrent, as it is saved while it is changed.
+*/
+
+public class PersistenceScheduler implements Closeable {
+
+    private final FileIO fileIO;
+    private final int changesPerSave;
+    private final ScheduledExecutorService writer;
+
+    private final AtomicInteger numOfChanges = new AtomicInteger();
+    // Set while a save is queued and has not started yet
+    private final AtomicBoolean saveQueued = new AtomicBoolean();
+    private final AtomicInteger numOfSaves = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    public PersistenceScheduler(FileIO fileIO, long interval,
+            TimeUnit unit, int changesPerSave) {
+        if (!fileIO.course.isConcurrent()) {
+            throw new IllegalArgumentException("The course must be "
+                    + "concurrent to be saved in the background");
+        }
+        this.fileIO = fileIO;
+        this.changesPerSave = Math.max(changesPerSave, 1);
+        this.writer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "course-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::saveIfChanged, interval,
+                interval, unit);
+        fileIO.course.setChangeListener(this::changed);
+    }
+
+    public void changed(int numChanged) {
+        // Counts the changes and queues a save once there are
+        // enough of them, unless one is already queued. The course
+        // counts its own adds and deletes, and other changes to
+        // its files are counted by calling this
+        if (numOfChanges.addAndGet(numChanged) >= changesPerSave
+                && saveQueued.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::saveIfChanged);
+            } catch (RejectedExecutionException e) {
+                // Closing, which saves the changes anyway
+                saveQueued.set(false);
+            }
+        }
+    }
+
+    private void saveIfChanged() {
+        // Runs on the writer thread. The changes counted before the
+        // save starts are all in it, so they are cleared first
+        saveQueued.set(false);
+        int numToSave = numOfChanges.getAndSet(0);
+        if (numToSave == 0) {
+            return;
+        }
+        try {
+            fileIO.writeFiles();
+            numOfSaves.incrementAndGet();
+        } catch (IOException e) {
+            // The changes are saved by the next save
+            numOfChanges.addAndGet(numToSave);
+            System.out.println("\nWarning: Changes could not be saved "
+                    + "and will be saved again later: " + e.getMessage());
+        }
+    }
+
+    public int getNumOfPendingChanges() {
+        return numOfChanges.get();
+    }
+
+    public int getNumOfSaves() {
+        return numOfSaves.get();
+    }
+
+    public void flush() throws InterruptedException {
+        // Saves any changes not yet saved and waits for the save,
+        // after any save already queued
+        try {
+            writer.submit(this::saveIfChanged).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Stops saving on the interval, saves the changes not yet
+        // saved and waits until that save has finished
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fileIO.course.setChangeListener(null);
+        writer.execute(this::saveIfChanged);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving the course", e);
+        }
+        if (numOfChanges.get() > 0) {
+            throw new IOException("Changes to the course could not be "
+                    + "saved");
+        }
+    }
+}
@@ -0,0 +1,420 @@
+import enrolmentregister.CourseManager;
+import enrolmentregister.DateCodec;
+import enrolmentregister.FileIO;
+import enrolmentregister.FeeTable;
+import enrolmentregister.Student;
+import enrolmentregister.StudentColumns;
+import enrolmentregister.StudentValidator;
+import enrolmentregister.StudentRegister;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.Scanner;
+
+/*
+* Benchmark harness for the enrolment register
+* Run with: java RegisterBenchmark [numOfStudents]
+* Generates a temporary StudentDetails file and times how
+* long each scenario takes, after a warm up round
+*/
+
+public class RegisterBenchmark {
+
+    private static final int DEFAULT_STUDENTS = 1_000_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException,
+            ParseException {
+        int numOfStudents = args.length > 0
+                ? Integer.parseInt(args[0]) : DEFAULT_STUDENTS;
+
+        File studentFile = File.createTempFile("BenchStudents", ".txt");
+        studentFile.deleteOnExit();
+        writeStudentFile(studentFile, numOfStudents);
+        System.out.printf("Students: %d, file size: %.1f MB%n",
+                numOfStudents, studentFile.length() / 1e6);
+
+        benchLoad(studentFile, numOfStudents);
+        benchDates(numOfStudents);
+        benchWrite(studentFile, numOfStudents);
+        benchLookup(studentFile, numOfStudents);
+        benchAggregate(studentFile, numOfStudents);
+        benchFees(studentFile, numOfStudents);
+        benchSnapshot(studentFile, numOfStudents);
+        benchHeap(studentFile, numOfStudents);
+        benchNames(numOfStudents * 10);
+    }
+
+    static void writeStudentFile(File file, int numOfStudents)
+            throws IOException {
+        // Writes a StudentDetails file with generated students
+        try (BufferedWriter writer = new BufferedWriter(
+                new FileWriter(file))) {
+            writer.write("Name, Date of Birth, Gender, Study Mode, "
+                    + "Year, Num of Modules, Fee\n");
+            for (int i = 0; i < numOfStudents; i++) {
+                boolean fullTime = i % 3 != 0;
+                int year = 1 + i % 4;
+                int modules = 1 + i % 6;
+                int fee = fullTime ? (year == 3 ? 2500 : 5000)
+                        : 750 * modules;
+                writer.write(nameOf(i) + ", "
+                        + String.format("%02d/%02d/%d", 1 + i % 28,
+                                1 + i % 12, 1970 + i % 30) + ", "
+                        + (i % 2 == 0 ? "M" : "F") + ", "
+                        + (fullTime ? "FT" : "PT") + ", "
+                        + year + ", " + modules + ", " + fee + "\n");
+            }
+        }
+    }
+
+    static String nameOf(int i) {
+        // Returns a unique two part name made only of letters
+        String[] firstNames = {"John", "Jane", "Bob", "Alice", "Mary"};
+        StringBuilder lastName = new StringBuilder("X");
+        for (int n = i; n > 0; n /= 26) {
+            lastName.append((char) ('a' + n % 26));
+        }
+        return firstNames[i % firstNames.length] + " " + lastName;
+    }
+
+    static void benchLoad(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Times loading the whole file into a CourseManager and
+        // compares it with the Scanner and split based reader
+        long numOfBytes = studentFile.length();
+        report("load (FileIO.readStudentDetails)", numOfStudents,
+                numOfBytes, () -> {
+            CourseManager course = new CourseManager();
+            new FileIO(course).readStudentDetails(studentFile.getPath());
+            return course.getNumOfStudents();
+        });
+        report("load (FileIO.readStudentDetailsMapped)", numOfStudents,
+                numOfBytes, () -> {
+            CourseManager course = new CourseManager();
+            new FileIO(course).readStudentDetailsMapped(
+                    studentFile.getPath());
+            return course.getNumOfStudents();
+        });
+        report("load (Scanner and split)", numOfStudents,
+                numOfBytes, () -> scannerLoad(studentFile));
+
+        File snapshotFile = File.createTempFile("BenchStudents", ".bin");
+        snapshotFile.deleteOnExit();
+        new FileIO(new CourseManager()).convertToBinary(
+                studentFile.getPath(), snapshotFile.getPath());
+        report("load (FileIO.readStudentSnapshot)", numOfStudents,
+                snapshotFile.length(), () -> {
+            CourseManager course = new CourseManager();
+            new FileIO(course).readStudentSnapshot(snapshotFile.getPath());
+            return course.getNumOfStudents();
+        });
+    }
+
+    static int scannerLoad(File studentFile) throws IOException,
+            ParseException {
+        // The reader readStudentDetails used before streaming
+        StudentRegister register = new StudentRegister();
+        try (Scanner scanner = new Scanner(studentFile)) {
+            scanner.nextLine();
+            while (scanner.hasNextLine()) {
+                String[] parts = scanner.nextLine().split(", ");
+                register.add(new Student(parts[0],
+                        new SimpleDateFormat("dd/MM/yyyy").parse(parts[1]),
+                        parts[2], parts[3], Integer.parseInt(parts[4]),
+                        Integer.parseInt(parts[5]),
+                        Integer.parseInt(parts[6])));
+            }
+        }
+        return register.size();
+    }
+
+    static void benchDates(int numOfDates) throws IOException,
+            ParseException {
+        // Compares DateCodec with a new SimpleDateFormat per date,
+        // parsing and then formatting each date
+        String[] dates = new String[numOfDates];
+        for (int i = 0; i < numOfDates; i++) {
+            dates[i] = String.format("%02d/%02d/%d", 1 + i % 28,
+                    1 + i % 12, 1970 + i % 30);
+        }
+        report("dates (DateCodec)", numOfDates, () -> {
+            int length = 0;
+            for (String date : dates) {
+                length += DateCodec.format(DateCodec.parse(date)).length();
+            }
+            return length;
+        });
+        report("dates (SimpleDateFormat)", numOfDates, () -> {
+            int length = 0;
+            for (String date : dates) {
+                Date parsed = new SimpleDateFormat("dd/MM/yyyy").parse(date);
+                length += new SimpleDateFormat("dd/MM/yyyy")
+                        .format(parsed).length();
+            }
+            return length;
+        });
+    }
+
+    static void benchWrite(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Compares writing the register with the row encoder and
+        // with String.format, and checks both files are identical
+        CourseManager course = new CourseManager();
+        FileIO fileIO = new FileIO(course);
+        fileIO.readStudentDetails(studentFile.getPath());
+        Student[] studentArray = course.getStudentArray();
+
+        File encoded = File.createTempFile("BenchEncoded", ".txt");
+        File formatted = File.createTempFile("BenchFormatted", ".txt");
+        encoded.deleteOnExit();
+        formatted.deleteOnExit();
+
+        report("write (FileIO.writeStudentDetails)", numOfStudents, () -> {
+            fileIO.writeStudentDetails(encoded.getPath());
+            return (int) encoded.length();
+        });
+        report("write (String.format)", numOfStudents, () -> {
+            formatWrite(studentArray, formatted);
+            return (int) formatted.length();
+        });
+        System.out.println("written files identical: " + Arrays.equals(
+                Files.readAllBytes(encoded.toPath()),
+                Files.readAllBytes(formatted.toPath())));
+    }
+
+    static void formatWrite(Student[] studentArray, File file)
+            throws IOException {
+        // The writer writeStudentDetails used before the row encoder
+        try (BufferedWriter writer = new BufferedWriter(
+                new FileWriter(file))) {
+            writer.write("Name, Date of Birth, Gender, Study Mode, "
+                    + "Year, Num of Modules, Fee\n");
+            for (Student student : studentArray) {
+                if (student != null && student.hasAllDetails()) {
+                    writer.write(String.format(
+                            "%s, %s, %s, %s, %d, %s, %s\n",
+                            student.getName(), student.getDOBStr(),
+                            student.getGender(), student.getStudyMode(),
+                            student.getYear(), student.getNumModules(),
+                            student.getFee()));
+                }
+            }
+        }
+    }
+
+    static void benchLookup(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Compares findStudentIndex with a linear scan of the array
+        CourseManager course = new CourseManager();
+        new FileIO(course).readStudentDetails(studentFile.getPath());
+        Student[] studentArray = course.getStudentArray();
+
+        int numOfLookups = 1_000;
+        String[] names = new String[numOfLookups];
+        Random random = new Random(42);
+        for (int i = 0; i < numOfLookups; i++) {
+            names[i] = nameOf(random.nextInt(numOfStudents)).toUpperCase();
+        }
+
+        report("lookup (findStudentIndex)", numOfLookups, () -> {
+            int found = 0;
+            for (String name : names) {
+                found += course.findStudentIndex(name) >= 0 ? 1 : 0;
+            }
+            return found;
+        });
+        report("lookup (linear scan)", numOfLookups, () -> {
+            int found = 0;
+            for (String name : names) {
+                found += linearScan(studentArray, name) >= 0 ? 1 : 0;
+            }
+            return found;
+        });
+    }
+
+    static void benchAggregate(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Compares calcGenderPercent over the Student array with the
+        // same percentage from the column store
+        CourseManager course = new CourseManager();
+        new FileIO(course).readStudentDetails(studentFile.getPath());
+        Student[] studentArray = course.getStudentArray();
+        StudentColumns columns = course.getColumns();
+
+        report("percent (Student array)", numOfStudents, () ->
+                (int) (course.calcGenderPercent(studentArray, "F") * 10));
+        report("percent (StudentColumns)", numOfStudents, () ->
+                (int) (columns.calcGenderPercent("F") * 10));
+    }
+
+    static void benchFees(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Compares repricing every student with calcFee against the
+        // fee table, over the register and over the columns
+        CourseManager course = new CourseManager();
+        new FileIO(course).readStudentDetails(studentFile.getPath());
+        Student[] studentArray = course.getStudentArray();
+        StudentColumns columns = course.getColumns();
+
+        report("fees (Student.calcFee)", numOfStudents, () -> {
+            int total = 0;
+            for (Student student : studentArray) {
+                if (student == null) {
+                    break;
+                }
+                total += Student.calcFee(student.getStudyMode(),
+                        student.getYear(), student.getNumModules());
+            }
+            return total;
+        });
+        report("fees (CourseManager.recomputeFees)", numOfStudents, () -> {
+            course.recomputeFees(FeeTable.STANDARD);
+            return studentArray[0].getFee();
+        });
+        report("fees (StudentColumns.recomputeFees)", numOfStudents, () -> {
+            columns.recomputeFees(FeeTable.STANDARD);
+            return (int) columns.totalFees("PT");
+        });
+    }
+
+    static void benchSnapshot(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Compares taking a snapshot after each change with copying
+        // the whole students array after each change
+        int numOfChanges = 1000;
+        CourseManager course = new CourseManager();
+        new FileIO(course).readStudentDetails(studentFile.getPath());
+        StudentRegister register = course.getStudentRegister();
+        Student student = register.get(0);
+
+        report("snapshot (RegisterSnapshot)", numOfChanges, () -> {
+            int total = 0;
+            for (int i = 0; i < numOfChanges; i++) {
+                register.set(i, student);
+                total += register.snapshot().size();
+            }
+            return total / numOfChanges;
+        });
+        report("snapshot (array copy)", numOfChanges, () -> {
+            int total = 0;
+            for (int i = 0; i < numOfChanges; i++) {
+                register.set(i, student);
+                total += Arrays.copyOf(register.array(),
+                        register.end()).length;
+            }
+            return total / numOfChanges;
+        });
+    }
+
+    static void benchNames(int numOfNames) throws IOException,
+            ParseException {
+        // Compares StudentValidator with the split and regex check
+        // validateName and isNameInvalid used before it
+        String[] names = new String[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < names.length; i++) {
+            String name = nameOf(random.nextInt(1_000_000));
+            // One name in eight is invalid
+            names[i] = i % 8 == 0 ? name + "1" : name.toLowerCase();
+        }
+
+        report("names (StudentValidator)", numOfNames, () -> {
+            int valid = 0;
+            for (int i = 0; i < numOfNames; i++) {
+                if (StudentValidator.checkName(names[i & 1023])
+                        == StudentValidator.VALID) {
+                    valid++;
+                }
+            }
+            return valid;
+        });
+        report("names (split and matches)", numOfNames, () -> {
+            int valid = 0;
+            for (int i = 0; i < numOfNames; i++) {
+                String[] parts = names[i & 1023].split(" ");
+                if (parts.length == 2 && parts[0].matches("[a-zA-Z]+")
+                        && parts[1].matches("[a-zA-Z]+")) {
+                    valid++;
+                }
+            }
+            return valid;
+        });
+    }
+
+    static void benchHeap(File studentFile, int numOfStudents)
+            throws IOException, ParseException {
+        // Prints the heap retained by a loaded course, measured
+        // after a full collection before and after loading
+        long before = usedHeap();
+        CourseManager course = new CourseManager();
+        new FileIO(course).readStudentDetails(studentFile.getPath());
+        long after = usedHeap();
+        System.out.printf("%-40s %10.1f MB  %12.0f bytes/student"
+                + "  (result %d)%n", "heap (loaded course)",
+                (after - before) / 1e6,
+                (after - before) / (double) numOfStudents,
+                course.getNumOfStudents());
+    }
+
+    static long usedHeap() {
+        // Returns the heap in use after asking for a few full
+        // collections
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static int linearScan(Student[] studentArray, String name) {
+        // The scan findStudentIndex used before the name index
+        for (int i = 0; i < studentArray.length; i++) {
+            if (studentArray[i] != null
+                    && name.equalsIgnoreCase(studentArray[i].getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    interface Scenario {
+        int run() throws IOException, ParseException;
+    }
+
+    static void report(String name, int numOfOps, Scenario scenario)
+            throws IOException, ParseException {
+        report(name, numOfOps, 0, scenario);
+    }
+
+    static void report(String name, int numOfOps, long numOfBytes,
+            Scenario scenario) throws IOException, ParseException {
+        // Runs the scenario a few times to warm up the JIT, then
+        // prints the average time of the measured rounds
+        int result = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            result = scenario.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            result = scenario.run();
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+        double seconds = millis / 1000.0;
+        System.out.printf("%-40s %10.1f ms  %12.0f ops/s", name, millis,
+                numOfOps / seconds);
+        if (numOfBytes > 0) {
+            System.out.printf("  %8.1f MB/s", numOfBytes / 1e6 / seconds);
+        }
+        System.out.printf("  (result %d)%n", result);
+    }
+}
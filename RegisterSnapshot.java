@@ -0,0 +1,136 @@
+package enrolmentregister;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/*
+The RegisterSnapshot class is a version of a StudentRegister
+that never changes, for reports and saves that must see one
+consistent set of students while the register keeps changing
+* Holds the slots of the register in fixed size chunks
+* Shares every chunk that has not changed with the snapshot
+  before it, so a new snapshot copies only the changed chunks and
+  the list of chunks, not every slot
+* Keeps a copy of the running statistics of the same version
+* Holds the same Student objects as the register, not copies
+*/
+
+public final class RegisterSnapshot {
+
+    private static final int CHUNK_SHIFT = 10;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private static final Student[][] NO_CHUNKS = new Student[0][];
+
+    private final Student[][] chunks;
+    private final int end;
+    private final int size;
+    private final int version;
+    private final CourseStatistics statistics;
+    private final CourseStatistics validStatistics;
+
+    private RegisterSnapshot(Student[][] chunks, int end, int size,
+            int version, CourseStatistics statistics,
+            CourseStatistics validStatistics) {
+        this.chunks = chunks;
+        this.end = end;
+        this.size = size;
+        this.version = version;
+        this.statistics = statistics;
+        this.validStatistics = validStatistics;
+    }
+
+    static int chunkOf(int slot) {
+        return slot >>> CHUNK_SHIFT;
+    }
+
+    static RegisterSnapshot of(Student[] slots, int end, int size,
+            int version, CourseStatistics statistics,
+            CourseStatistics validStatistics, RegisterSnapshot previous,
+            BitSet changedChunks) {
+        // Builds the snapshot of the first end slots. A chunk is
+        // shared with the previous snapshot unless it was changed
+        // since then. The statistics are copied
+        int numOfChunks = (end + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        Student[][] chunks = numOfChunks == 0 ? NO_CHUNKS
+                : new Student[numOfChunks][];
+        for (int i = 0; i < numOfChunks; i++) {
+            if (previous != null && i < previous.chunks.length
+                    && !changedChunks.get(i)) {
+                chunks[i] = previous.chunks[i];
+            } else {
+                int from = i << CHUNK_SHIFT;
+                chunks[i] = Arrays.copyOfRange(slots, from,
+                        from + CHUNK_SIZE);
+                // Slots past end may hold nothing the snapshot can see
+                Arrays.fill(chunks[i], Math.min(end - from, CHUNK_SIZE),
+                        CHUNK_SIZE, null);
+            }
+        }
+        return new RegisterSnapshot(chunks, end, size, version,
+                statistics.copy(), validStatistics.copy());
+    }
+
+    public int getVersion() {
+        // Returns the mod count of the register at this version
+        return version;
+    }
+
+    public int size() {
+        // Returns the number of students in the snapshot
+        return size;
+    }
+
+    public int end() {
+        // Returns the number of slots, including empty ones
+        return end;
+    }
+
+    public Student get(int slot) {
+        // Returns the student in the slot or null if it is empty
+        if (slot < 0 || slot >= end) {
+            return null;
+        }
+        return chunks[slot >>> CHUNK_SHIFT][slot & (CHUNK_SIZE - 1)];
+    }
+
+    public void forEach(Consumer<Student> action) {
+        // Passes every student to the action in register order
+        for (int i = 0; i < chunks.length; i++) {
+            Student[] chunk = chunks[i];
+            int length = Math.min(CHUNK_SIZE, end - (i << CHUNK_SHIFT));
+            for (int j = 0; j < length; j++) {
+                if (chunk[j] != null) {
+                    action.accept(chunk[j]);
+                }
+            }
+        }
+    }
+
+    public Student[] toArray() {
+        // Returns the students in register order in a new array
+        Student[] students = new Student[size];
+        int[] next = {0};
+        forEach(student -> students[next[0]++] = student);
+        return students;
+    }
+
+    public CourseStatistics getStatistics() {
+        // Returns a copy of the statistics of every student
+        return statistics.copy();
+    }
+
+    public CourseStatistics getValidStatistics() {
+        // Returns a copy of the statistics of the students that
+        // have all their details
+        return validStatistics.copy();
+    }
+
+    public boolean sharesChunk(RegisterSnapshot other, int chunk) {
+        // Returns true if both snapshots hold the same copy of the
+        // chunk
+        return chunk < chunks.length && chunk < other.chunks.length
+                && chunks[chunk] == other.chunks[chunk];
+    }
+}
@@ -1,8 +1,6 @@
 package enrolmentregister;
 
-import java.util.Scanner;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -14,7 +12,6 @@ public class Student {
     private int year;
     private int numModules;
     private int fee;
-    private final Scanner input = new Scanner(System.in);
 
     public Student() {
         name = null;
@@ -41,48 +38,15 @@ public class Student {
         this.name = name;
     }
     
-    public void promptForName() {
-        // Prompt user to enter the name of the student, 
-        // validate it before setting it as name
-        
-        while (true) {            
-            System.out.print("Enter Student's Full Name: ");
-            String nameInput = input.nextLine().trim();
-            // Validate the name
-            String validatedName = validateName(nameInput);
-            
-            // If the validated name is not null set
-            // validated name to the variable name
-            if (validatedName != null){
-                setName(validatedName);
-                return;
-            }                     
-        }
-    }
-
     public String validateName(String userInput){
-        // Validates user input for student's name
-        
-        String[] nameParts = userInput.split(" ");        
-        if (nameParts.length != 2) {
-            // If it does not contain two parts, returns null
-            System.out.println("Invalid Input.");
-            return null;
-            
-        } else if (!nameParts[0].matches("[a-zA-Z]+") ||
-                !nameParts[1].matches("[a-zA-Z]+")) {
-            // If it does not contain only alphabets, return null 
+        // Validates user input for student's name. It must be a
+        // first and last name made of letters only
+        if (StudentValidator.checkName(userInput) != StudentValidator.VALID) {
             System.out.println("Invalid Input.");
             return null;
-            
-        } else {
-            // First letter of each part is capitalised and returned
-            String firstName = nameParts[0].substring(0, 1).toUpperCase()
-                    + nameParts[0].substring(1);
-            String lastName = nameParts[1].substring(0, 1).toUpperCase() 
-                    + nameParts[1].substring(1);
-            return String.format("%s %s", firstName, lastName);
         }
+        // First letter of each part is capitalised and returned
+        return StudentValidator.formatName(userInput);
     }
     
     public String getName() {
@@ -93,67 +57,29 @@ public class Student {
         this.dob = dob;
     }
     
-    public void promptForDOB() {
-        // Prompt user to enter the date of birth of student,
-        // validate it before setting it as dob
-        
-        while (true) {
-            System.out.print("Enter Date of Birth (dd/mm/yyyy): ");
-            String dobInput = input.nextLine().trim();
-            // Validate the date of birth
-            Date validatedDOB = validateDOB(dobInput);
-                        
-            if (dobInput.equals("")){
-                // If user leaves the date of birth blank
-                System.out.println("*Left Blank*");
-                return;
-            } else if (validatedDOB != null){
-                // If the validated dob is not null set 
-                // validated dob to the variable dob
-                setDOB(validatedDOB);
-                return;
-            }
-        }
-    }
-    
     /* 
     * Calendar class referenced from JavaTpoint website
     * @see <a href="https://www.javatpoint.com/java-calculate-age"></a>
     */ 
     public Date validateDOB(String userInput) {
         // Validate the date of birth entered by the user
+        if (userInput.equals("")) {
+            // If input is empty, return null
+            return null;
+        }
         
+        // Check the date is a real date in the format "dd/MM/yyyy"
+        // and that the age of the student in the current year is
+        // within the realistic range
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        if (StudentValidator.checkDOB(userInput, 0, userInput.length(),
+                currentYear) != StudentValidator.VALID) {
+            System.out.println("Invalid Input.");
+            return null;
+        }
         try {
-            if (userInput.equals("")) {
-                // If input is empty, return null
-                return null;
-            } 
-            
-            // Parse the input as a date in the format "dd/MM/yyyy"
-            SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
-            format.setLenient(false);
-            Date date = format.parse(userInput);
-            
-            // Get the year of birth from the parsed date
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            int yearOfBirth = cal.get(Calendar.YEAR);
-            
-            // Calculates the age of the user based on the current year
-            int age = Calendar.getInstance().get(Calendar.YEAR) - yearOfBirth;
-
-            // Set the minimum and maximum age values
-            final int MINIMUM_AGE = 16;
-            final int MAXIMUM_AGE = 60;
-            
-            // Check if the age is within the realistic range
-            if (age < MINIMUM_AGE || age > MAXIMUM_AGE) {
-                throw new ParseException("Date is not "
-                        + "within realistic range.", 0);
-            }
-            // Return the parsed date if it is valid
-            return date;
-            
+            // Return the parsed date as it is valid
+            return DateCodec.parse(userInput);
         } catch (ParseException e) {
             System.out.println("Invalid Input.");
             return null;
@@ -170,58 +96,27 @@ public class Student {
         if (dob == null) {
             return null;
         }
-        SimpleDateFormat df = new SimpleDateFormat("dd/MM/yyyy");
-        return df.format(dob);
+        return DateCodec.format(dob);
     }    
     
     public void setGender(String gender){
         this.gender = gender;
     }
     
-    public void promptForGender() {
-        // Prompt usr to enter the gender of the student, 
-        // validate it before setting it as gender
-        
-        while (true) {
-            System.out.print("Enter Gender (M/F/Leave Blank): ");
-            String genderInput = input.nextLine().trim();
-            // Validate the gender
-            String validatedGender = validateGender(genderInput);
-                       
-            if (genderInput.equals("")) {
-                // If user leaves the gender blank
-                System.out.println("*Left Blank*");    
-                return;
-            } else if (validatedGender != null) {
-                // If the validated gender is not null set
-                // validated gender to the variable gender 
-                setGender(validatedGender);
-                return;
-            }
-        }
-    }
-
     public String validateGender(String genderInput) {
-        // Validates the gender entered by the user
-        
-        try {
-            if (genderInput.equals("")) {
-                // If the user input is empty, return null
-                return null;
-                
-            } else if (genderInput.equalsIgnoreCase("M")
-                    || genderInput.equalsIgnoreCase("F")) {
-                // If the user input is 'M' or 'F' is
-                // capitalised and returned
-                return genderInput.toUpperCase();
-                
-            } else {
-                throw new IllegalArgumentException();
-            }
-        } catch (IllegalArgumentException e) {
+        // Validates the gender entered by the user. If the user
+        // input is 'M' or 'F' it is capitalised and returned
+        int code = StudentValidator.checkGender(genderInput, 0,
+                genderInput.length());
+        if (code == StudentValidator.EMPTY) {
+            // If the user input is empty, return null
+            return null;
+        } else if (code != StudentValidator.VALID) {
             System.out.println("Invalid Input.");
             return null;
         }
+        return Character.toUpperCase(genderInput.charAt(0)) == 'M'
+                ? "M" : "F";
     }
     
     public String getGender() {
@@ -232,49 +127,20 @@ public class Student {
         this.studyMode = studyMode;
     }
     
-    public void promptForStudyMode() {
-        // Prompt user to enter the study mode of student,
-        // validate it before setting it as studyMode
-        
-        while (true) {
-            System.out.print("Enter Study Mode (FT/PT/Leave Blank): ");
-            String studyModeInput  = input.nextLine().trim();
-            // Validate the study mode
-            String validatedStudyMode = validateStudyMode(studyModeInput );
-            
-            if (studyModeInput.equals("")) {
-                // If user leaves the study mode blank
-                System.out.println("*Left Blank*");
-                return;
-            } else if (validatedStudyMode != null) {
-                // If the validated study mode is not null set
-                // validated study mode to the variable study mode 
-                setStudyMode(validatedStudyMode);
-                return;
-            }
-        }
-    }
-    
     public String validateStudyMode(String studyModeInput ) {
-        // Validate the study mode entered by the user
-        
-        try {
-            if (studyModeInput .equals("")) {
-                // If the user input is empty, return null
-                return null;
-            } else if (studyModeInput.equalsIgnoreCase("PT") ||
-                    studyModeInput.equalsIgnoreCase("FT")) {
-                // If the user input is 'FT' or 'PT' is
-                // capitalised and returned
-                return studyModeInput.toUpperCase();
-                
-            } else {
-                throw new IllegalArgumentException();
-            }
-        } catch (IllegalArgumentException e) {
+        // Validate the study mode entered by the user. If the user
+        // input is 'FT' or 'PT' it is capitalised and returned
+        int code = StudentValidator.checkStudyMode(studyModeInput, 0,
+                studyModeInput.length());
+        if (code == StudentValidator.EMPTY) {
+            // If the user input is empty, return null
+            return null;
+        } else if (code != StudentValidator.VALID) {
             System.out.println("Invalid Input.");
-            return null;  
+            return null;
         }
+        return Character.toUpperCase(studyModeInput.charAt(0)) == 'F'
+                ? "FT" : "PT";
     }
     
     public String getStudyMode() {
@@ -285,49 +151,20 @@ public class Student {
         this.year = year;
     }
     
-    public void promptForYear() {
-        // Prompt user to enter the year student is in, 
-        // validate it before setting it as year
-        
-        while (true) {
-            System.out.print("Enter Year (1-4): ");
-            String yearInput = input.nextLine().trim();
-            // Validate the year
-            int validatedYear = validateYear(yearInput);
-            
-            if (yearInput.isEmpty()) {
-                // If user leaves the year blank
-                System.out.println("*Left Blank*");
-                return;
-            } else if (validatedYear != 0) {
-                // If the validated year is not 0 set
-                // validated year to the variable year
-                setYear(validatedYear);
-                return;
-            }
-        }
-    }
-    
     public int validateYear(String yearInput) {
         // Validate the year entered by the user
-        
-        if (yearInput.isEmpty()) {
+        int code = StudentValidator.checkYear(yearInput, 0,
+                yearInput.length());
+        if (code == StudentValidator.EMPTY) {
             // If the user input is empty, return 0
             return 0;
-        }
-        try {
-            // Parse user input to convert it into int
-            int tempYear  = Integer.parseInt(yearInput);
+        } else if (code != StudentValidator.VALID) {
             // If the year is not between 1 and 4
-            if (tempYear  < 1 || tempYear  > 4) {
-                throw new IllegalArgumentException();
-            }
-            return tempYear; // Return the validated year
-            
-        } catch (IllegalArgumentException e) {
             System.out.println("Invalid Input.");
             return 0;
         }
+        // Return the validated year
+        return StudentValidator.parseNumber(yearInput, 0, yearInput.length());
     }
     
     public int getYear() {
@@ -338,65 +175,58 @@ public class Student {
         this.numModules = numModules;
     }
     
-    public void promptForNumModules() {
-        // Prompt user to enter the number of modules the student took,
-        // validate it before setting it to numModules
-        
-        while (true) {
-            System.out.print("Enter Number of Modules (1-6): ");
-            String modulesInput = input.nextLine().trim();
-            // Validated the number of modules
-            int validatedModules = validateNumModules(modulesInput);
-            
-            if (modulesInput.isEmpty()) {
-                // If user leaves the num of modules blank
-                System.out.println("*Left Blank*");
-                return;
-                
-            } else if (validatedModules != 0) {
-                // If the validated num of modules is not 0
-                // validated num of modules to the variable
-                // num of modules
-                setNumModules(validatedModules);
-                return;
-            }
-        }
-    }
-    
     public int validateNumModules(String modulesInput) {
         // Validate num of modules entered by user
-        if (modulesInput.isEmpty()) {
+        int code = StudentValidator.checkNumModules(modulesInput, 0,
+                modulesInput.length());
+        if (code == StudentValidator.EMPTY) {
             // If user input is empty, return 0
             return 0;
-        }
-        try {
-            // Parse user input to convert it into int
-            int tempNumModules  = Integer.parseInt(modulesInput);
+        } else if (code != StudentValidator.VALID) {
             // If the num of modules is not between 1 and 6
-            if (tempNumModules  < 1 || tempNumModules  > 6) {
-                throw new IllegalArgumentException();
-            } 
-            return tempNumModules; // Return the validated num of modules
-        } catch (IllegalArgumentException e) {
             System.out.println("Invalid Input.");
             return 0;
         }
+        // Return the validated num of modules
+        return StudentValidator.parseNumber(modulesInput, 0,
+                modulesInput.length());
     }
     
     public int getNumModules() {
         return numModules;
     }
     
+    public boolean hasAllDetails() {
+        // A student has all details when none of them are missing
+        // (not null or 0). Only these students are saved to file
+        return dob != null 
+                && gender != null 
+                && studyMode != null 
+                && year != 0 
+                && numModules != 0;
+    }
+    
     public void setFee() throws NullPointerException {
         // This method sets the tuition fee of the student based on
         // their study mode, year and number of modules
+        setFee(FeeTable.current());
+    }
+
+    public void setFee(FeeTable table) {
+        // Sets the fee of the student from a precomputed fee table
+        this.fee = table.feeOf(studyMode, year, numModules);
+    }
+
+    public static int calcFee(String studyMode, int year, int numModules) {
+        // Returns the tuition fee for the study mode, year and
+        // number of modules. These are the standard rules that
+        // FeeTable.STANDARD is compiled from
         int feePerModule = 750;
         int tuitionFee = 0;
         
         // If studyMode is null, fee cannot be calculated
         if (studyMode == null) {
-            this.fee = 0;
-            return;
+            return 0;
         }
         
         switch (studyMode) {
@@ -420,9 +250,7 @@ public class Student {
                 tuitionFee = 0;
                 break;
         }
-        // the fee of the student is set to the value
-        // of tuitionFee
-        this.fee = tuitionFee;
+        return tuitionFee;
     }
 
     public int getFee() {
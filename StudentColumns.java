@@ -0,0 +1,447 @@
+package enrolmentregister;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+The StudentColumns class stores students column by column
+for fast aggregation over a whole course
+* Keeps each detail in its own primitive array: epoch day of
+  birth, gender and study mode codes, year, modules and fee
+* Codes gender and study mode through a small dictionary, so a
+  count compares bytes instead of Strings
+* Interns names so students with the same name share one String
+* Aggregates with tight loops over the arrays
+* Gives a flyweight Student view of any row, so code written
+  against Student can still read and change the columns
+*/
+
+public class StudentColumns {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte NO_CODE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+    private String[] names;
+    private int[] epochDays;
+    private byte[] genders;
+    private byte[] modes;
+    private int[] years;
+    private int[] numModules;
+    private int[] fees;
+
+    // Dictionaries of the gender and study mode strings. The
+    // code of a string is its index in the dictionary
+    private String[] genderWords = new String[0];
+    private String[] modeWords = new String[0];
+    private final Map<String, String> internedNames = new HashMap<>();
+
+    public StudentColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StudentColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        names = new String[capacity];
+        epochDays = new int[capacity];
+        genders = new byte[capacity];
+        modes = new byte[capacity];
+        years = new int[capacity];
+        numModules = new int[capacity];
+        fees = new int[capacity];
+    }
+
+    public static StudentColumns of(StudentRegister register) {
+        // Returns the columns of every student in the register,
+        // in register order
+        StudentColumns columns = new StudentColumns(register.size());
+        for (int i = 0; i < register.end(); i++) {
+            Student student = register.get(i);
+            if (student != null) {
+                columns.add(student);
+            }
+        }
+        return columns;
+    }
+
+    public static StudentColumns of(Student[] students) {
+        // Returns the columns of the non-null students in the array
+        StudentColumns columns = new StudentColumns(students.length);
+        for (Student student : students) {
+            if (student != null) {
+                columns.add(student);
+            }
+        }
+        return columns;
+    }
+
+    public int add(Student student) {
+        // Appends the details of the student as a new row and
+        // returns the row index
+        if (size == names.length) {
+            grow();
+        }
+        int row = size++;
+        setName(row, student.getName());
+        setDOB(row, student.getDOB());
+        genders[row] = genderCode(student.getGender(), true);
+        modes[row] = modeCode(student.getStudyMode(), true);
+        years[row] = student.getYear();
+        numModules[row] = student.getNumModules();
+        fees[row] = student.getFee();
+        return row;
+    }
+
+    private void grow() {
+        // Grows every column by half so appends cost amortised O(1)
+        int capacity = names.length + (names.length >> 1) + 1;
+        names = Arrays.copyOf(names, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        genders = Arrays.copyOf(genders, capacity);
+        modes = Arrays.copyOf(modes, capacity);
+        years = Arrays.copyOf(years, capacity);
+        numModules = Arrays.copyOf(numModules, capacity);
+        fees = Arrays.copyOf(fees, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Student view(int row) {
+        // Returns a Student that reads and writes the given row
+        return new View(row);
+    }
+
+    public View cursor() {
+        // Returns a view that can be moved from row to row, so a
+        // loop over the rows creates only one view
+        return new View(0);
+    }
+
+    /*
+    * Aggregations. Each looks up the dictionary code once and
+    * then loops over the primitive columns only
+    */
+
+    public int countInMode(String studyMode) {
+        // Returns the number of students in the study mode
+        byte mode = modeCode(studyMode, false);
+        if (studyMode != null && mode == NO_CODE) {
+            return 0; // No student is in this study mode
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (modes[i] == mode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int countWithGender(String studyMode) {
+        // Returns the number of students in the study mode that
+        // have a gender
+        byte mode = modeCode(studyMode, false);
+        if (studyMode != null && mode == NO_CODE) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (modes[i] == mode && genders[i] != NO_CODE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int countMatching(String studyMode, String gender) {
+        // Returns the number of students in the study mode with
+        // the given gender
+        byte mode = modeCode(studyMode, false);
+        byte code = genderCode(gender, false);
+        if (studyMode != null && mode == NO_CODE) {
+            return 0;
+        }
+        if (gender != null && code == NO_CODE) {
+            return 0; // No student has this gender
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (modes[i] == mode && genders[i] == code) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public double calcGenderPercent(String studyMode, String gender) {
+        // Returns the percentage of the students in the study mode
+        // with a gender that have the given gender, to one decimal
+        // place, as CourseManager.calcGenderPercent does
+        return CourseStatistics.roundPercent(countMatching(studyMode,
+                gender), countWithGender(studyMode));
+    }
+
+    public double calcGenderPercent(String gender) {
+        // Returns the percentage of all students with a gender
+        // that have the given gender
+        byte code = genderCode(gender, false);
+        if (gender != null && code == NO_CODE) {
+            return 0.0;
+        }
+        int numWithGender = 0;
+        int numMatching = 0;
+        for (int i = 0; i < size; i++) {
+            byte studentGender = genders[i];
+            if (studentGender != NO_CODE) {
+                numWithGender++;
+            }
+            if (studentGender == code) {
+                numMatching++;
+            }
+        }
+        return CourseStatistics.roundPercent(numMatching, numWithGender);
+    }
+
+    public int countInYear(int year) {
+        // Returns the number of students in the year
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (years[i] == year) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long totalFees(String studyMode) {
+        // Returns the sum of the fees of the students in the
+        // study mode
+        byte mode = modeCode(studyMode, false);
+        if (studyMode != null && mode == NO_CODE) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (modes[i] == mode) {
+                total += fees[i];
+            }
+        }
+        return total;
+    }
+
+    public void recomputeFees(FeeTable table) {
+        // Sets the fee of every row from the fee table in one loop
+        // over the mode, year and module columns. The study mode
+        // codes are turned into rows of the table first
+        int[] modeIndexes = new int[modeWords.length + 1];
+        modeIndexes[0] = FeeTable.modeIndex(null); // NO_CODE
+        for (int i = 0; i < modeWords.length; i++) {
+            modeIndexes[i + 1] = FeeTable.modeIndex(modeWords[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            int code = FeeTable.code(modeIndexes[modes[i] + 1], years[i],
+                    numModules[i]);
+            fees[i] = code >= 0 ? table.feeOf(code)
+                    : table.feeOf(wordOf(modeWords, modes[i]), years[i],
+                            numModules[i]);
+        }
+    }
+
+    /*
+    * Dictionary and column helpers
+    */
+
+    private byte genderCode(String gender, boolean add) {
+        byte code = codeOf(genderWords, gender);
+        if (code == NO_CODE && gender != null && add) {
+            genderWords = addWord(genderWords, gender);
+            code = (byte) (genderWords.length - 1);
+        }
+        return code;
+    }
+
+    private byte modeCode(String studyMode, boolean add) {
+        byte code = codeOf(modeWords, studyMode);
+        if (code == NO_CODE && studyMode != null && add) {
+            modeWords = addWord(modeWords, studyMode);
+            code = (byte) (modeWords.length - 1);
+        }
+        return code;
+    }
+
+    private static byte codeOf(String[] words, String word) {
+        // Returns the index of the word in the dictionary, which
+        // only ever holds a handful of words
+        if (word != null) {
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].equals(word)) {
+                    return (byte) i;
+                }
+            }
+        }
+        return NO_CODE;
+    }
+
+    private static String[] addWord(String[] words, String word) {
+        if (words.length == Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct values "
+                    + "for a column");
+        }
+        String[] bigger = Arrays.copyOf(words, words.length + 1);
+        bigger[words.length] = word;
+        return bigger;
+    }
+
+    private static String wordOf(String[] words, byte code) {
+        return code == NO_CODE ? null : words[code];
+    }
+
+    private void setName(int row, String name) {
+        // Stores the name, sharing one String between equal names
+        if (name == null) {
+            names[row] = null;
+            return;
+        }
+        String interned = internedNames.putIfAbsent(name, name);
+        names[row] = interned == null ? name : interned;
+    }
+
+    private void setDOB(int row, Date dob) {
+        epochDays[row] = dob == null ? NO_DATE
+                : (int) DateCodec.toLocalDate(dob).toEpochDay();
+    }
+
+    private Date getDOB(int row) {
+        int epochDay = epochDays[row];
+        return epochDay == NO_DATE ? null
+                : DateCodec.toDate(LocalDate.ofEpochDay(epochDay));
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row
+                    + " is outside the columns");
+        }
+    }
+
+    /*
+    * Flyweight Student that reads and writes one row of the
+    * columns. The fields of the Student it extends are not used
+    */
+    public class View extends Student {
+
+        private int row;
+
+        private View(int row) {
+            moveTo(row);
+        }
+
+        public View moveTo(int row) {
+            // Points the view at another row
+            checkRow(row);
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        @Override
+        public String getName() {
+            return names[row];
+        }
+
+        @Override
+        public void setName(String name) {
+            StudentColumns.this.setName(row, name);
+        }
+
+        @Override
+        public Date getDOB() {
+            return StudentColumns.this.getDOB(row);
+        }
+
+        @Override
+        public void setDOB(Date dob) {
+            StudentColumns.this.setDOB(row, dob);
+        }
+
+        @Override
+        public String getDOBStr() {
+            Date dob = getDOB();
+            return dob == null ? null : DateCodec.format(dob);
+        }
+
+        @Override
+        public String getGender() {
+            return wordOf(genderWords, genders[row]);
+        }
+
+        @Override
+        public void setGender(String gender) {
+            genders[row] = genderCode(gender, true);
+        }
+
+        @Override
+        public String getStudyMode() {
+            return wordOf(modeWords, modes[row]);
+        }
+
+        @Override
+        public void setStudyMode(String studyMode) {
+            modes[row] = modeCode(studyMode, true);
+        }
+
+        @Override
+        public int getYear() {
+            return years[row];
+        }
+
+        @Override
+        public void setYear(int year) {
+            years[row] = year;
+        }
+
+        @Override
+        public int getNumModules() {
+            return numModules[row];
+        }
+
+        @Override
+        public void setNumModules(int modules) {
+            numModules[row] = modules;
+        }
+
+        @Override
+        public void setFee() {
+            setFee(FeeTable.current());
+        }
+
+        @Override
+        public void setFee(FeeTable table) {
+            fees[row] = table.feeOf(getStudyMode(), years[row],
+                    numModules[row]);
+        }
+
+        @Override
+        public int getFee() {
+            return fees[row];
+        }
+
+        @Override
+        public boolean hasAllDetails() {
+            return epochDays[row] != NO_DATE
+                    && genders[row] != NO_CODE
+                    && modes[row] != NO_CODE
+                    && years[row] != 0
+                    && numModules[row] != 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package enrolmentregister;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.ParseException;
+
+/*
+* This class streams students from a Student Details file.
+* The file is read through a large buffer one line at a time
+* and each line is parsed into a Student by a StudentLineParser,
+* so students can be handled as soon as they are read.
+*/
+
+public class StudentFileReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final BufferedReader reader;
+    private final StudentLineParser parser = new StudentLineParser();
+    private long lineNumber;
+
+    public StudentFileReader(String fileName) throws IOException {
+        this.reader = new BufferedReader(new FileReader(fileName),
+                BUFFER_SIZE);
+        this.lineNumber = 0;
+    }
+
+    public boolean skipHeader() throws IOException {
+        // Skips the header row and returns false if the
+        // file is empty
+        lineNumber++;
+        return reader.readLine() != null;
+    }
+
+    public Student next() throws IOException, ParseException {
+        // Reads the next line and returns it as a Student, or
+        // returns null at the end of the file. Blank lines
+        // are skipped
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isEmpty());
+        
+        try {
+            return parser.parse(line);
+        } catch (ParseException e) {
+            // Add the line number to the error
+            throw new ParseException("Line " + lineNumber + ": "
+                    + e.getMessage(), e.getErrorOffset());
+        }
+    }
+
+    public long getLineNumber() {
+        // Returns the number of the last line read
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
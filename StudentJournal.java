@@ -0,0 +1,200 @@
+package enrolmentregister;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.ParseException;
+
+/*
+* This class keeps an append-only journal of the changes made
+* to the register since the Student Details file was last saved.
+* Each change is one line: "A " or "D " followed by the student
+* row, for a student that was added or deleted. Only students
+* with all their details are journaled, as only they are saved.
+* Replaying the journal onto the last saved file recovers the
+* register. Once the journal holds enough records it is folded
+* into a fresh Student Details file by its compactor. Records can
+* be appended from many threads.
+*/
+
+public class StudentJournal implements Closeable {
+
+    private static final String ADD = "A ";
+    private static final String DELETE = "D ";
+    private static final int DEFAULT_COMPACT_AFTER = 10_000;
+
+    /*
+    * Interface for the code that saves the register to a new
+    * Student Details file and empties the journal
+    */
+    public interface Compactor {
+        void compact() throws IOException;
+    }
+
+    private final File file;
+    private final StudentRowEncoder encoder = new StudentRowEncoder();
+    private FileOutputStream stream;
+    private Writer writer;
+    private int numOfRecords;
+    private int compactAfter = DEFAULT_COMPACT_AFTER;
+    private Compactor compactor;
+
+    public StudentJournal(String fileName) {
+        this.file = new File(fileName);
+    }
+
+    public String getFileName() {
+        return file.getPath();
+    }
+
+    public void setCompactor(Compactor compactor) {
+        this.compactor = compactor;
+    }
+
+    public void setCompactAfter(int numOfRecords) {
+        // Sets how many records the journal holds before it is
+        // compacted
+        this.compactAfter = numOfRecords;
+    }
+
+    public synchronized int getNumOfRecords() {
+        return numOfRecords;
+    }
+
+    public synchronized int replay(StudentRegister register) throws IOException,
+            ParseException {
+        // Applies every complete record in the journal to the
+        // register and returns the number of records applied. A
+        // last line without a newline was cut short by a crash
+        // and is ignored
+        if (!file.exists()) {
+            return 0;
+        }
+        String text = new String(Files.readAllBytes(file.toPath()),
+                Charset.defaultCharset());
+        StudentLineParser parser = new StudentLineParser();
+        int applied = 0;
+        int lineNumber = 0;
+        int lineStart = 0;
+        int lineEnd;
+        while ((lineEnd = text.indexOf('\n', lineStart)) >= 0) {
+            String line = text.substring(lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+            lineNumber++;
+            if (line.length() <= ADD.length()) {
+                continue;
+            }
+            String row = line.substring(ADD.length());
+            Student student;
+            try {
+                student = parser.parse(row);
+            } catch (ParseException e) {
+                throw new ParseException("Journal line " + lineNumber
+                        + ": " + e.getMessage(), e.getErrorOffset());
+            }
+            if (line.startsWith(ADD)) {
+                register.add(student);
+            } else if (line.startsWith(DELETE)) {
+                removeMatching(register, row + "\n");
+            }
+            applied++;
+        }
+        numOfRecords = applied;
+        return applied;
+    }
+
+    private void removeMatching(StudentRegister register, String row) {
+        // Removes the first student whose row is the same as the
+        // journaled row. The fee is left out of the match, as fees
+        // can be repriced after a record was written
+        String details = withoutFee(row);
+        for (int slot : register.indexesOf(row.substring(0,
+                row.indexOf(", ")))) {
+            if (details.equals(withoutFee(encoder.encodeToString(
+                    register.get(slot))))) {
+                register.remove(slot);
+                return;
+            }
+        }
+    }
+
+    private static String withoutFee(String row) {
+        // The fee is the last column of a row
+        return row.substring(0, row.lastIndexOf(", "));
+    }
+
+    public synchronized void open() throws IOException {
+        // Opens the journal to append records
+        close();
+        stream = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream,
+                Charset.defaultCharset()));
+    }
+
+    public synchronized void reset() throws IOException {
+        // Starts counting again after the journal file has been
+        // replaced by an empty one, and reopens it
+        numOfRecords = 0;
+        open();
+    }
+
+    public synchronized boolean isOpen() {
+        return writer != null;
+    }
+
+    public synchronized void recordAdd(Student student) throws IOException {
+        // Appends an add record for a student that will be saved
+        if (student.hasAllDetails()) {
+            append(ADD, student);
+        }
+    }
+
+    public synchronized void recordDelete(Student student) throws IOException {
+        // Appends a delete record for a student that was saved
+        if (student.hasAllDetails()) {
+            append(DELETE, student);
+        }
+    }
+
+    private void append(String type, Student student) throws IOException {
+        if (writer == null) {
+            return; // The journal is not open
+        }
+        writer.write(type);
+        encoder.write(student, writer);
+        numOfRecords++;
+    }
+
+    public void commit() throws IOException {
+        // Writes the appended records to disk, then compacts the
+        // journal if it has grown past its limit. The compactor runs
+        // without holding the journal, as it waits for the threads
+        // that are appending records to finish
+        synchronized (this) {
+            if (writer == null) {
+                return;
+            }
+            writer.flush();
+            stream.getChannel().force(false);
+            if (compactor == null || numOfRecords < compactAfter) {
+                return;
+            }
+        }
+        compactor.compact();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            stream = null;
+        }
+    }
+}
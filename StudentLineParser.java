@@ -0,0 +1,72 @@
+package enrolmentregister;
+
+import java.text.ParseException;
+import java.util.Date;
+
+/*
+* This class parses a line of the Student Details file into
+* a Student without splitting the line.
+* It keeps the field positions of the last line, so each
+* thread that parses lines needs its own parser.
+*/
+
+public class StudentLineParser {
+
+    private static final String SEPARATOR = ", ";
+    private static final int NUM_OF_FIELDS = 7;
+
+    private final int[] fieldStarts = new int[NUM_OF_FIELDS + 1];
+
+    public Student parse(String line) throws ParseException {
+        // Finds where each field starts, then reads every field
+        // straight from the line
+        findFields(line);
+
+        String name = field(line, 0);
+        Date dob = DateCodec.parse(line, fieldStarts[1],
+                fieldStarts[2] - SEPARATOR.length());
+        String gender = field(line, 2);
+        String studyMode = field(line, 3);
+        int year = intField(line, 4);
+        int modules = intField(line, 5);
+        int fee = intField(line, 6);
+
+        return new Student(name, dob, gender, studyMode, year,
+                modules, fee);
+    }
+
+    private void findFields(String line) throws ParseException {
+        // Records the start of every field. The entry after the
+        // last field is where the last field would end plus the
+        // length of a separator
+        int start = 0;
+        for (int i = 0; i < NUM_OF_FIELDS - 1; i++) {
+            fieldStarts[i] = start;
+            int separator = line.indexOf(SEPARATOR, start);
+            if (separator < 0) {
+                throw new ParseException("Line has " + (i + 1)
+                        + " fields instead of " + NUM_OF_FIELDS,
+                        line.length());
+            }
+            start = separator + SEPARATOR.length();
+        }
+        fieldStarts[NUM_OF_FIELDS - 1] = start;
+        // The last field ends at the next separator, if any
+        int separator = line.indexOf(SEPARATOR, start);
+        int end = separator < 0 ? line.length() : separator;
+        fieldStarts[NUM_OF_FIELDS] = end + SEPARATOR.length();
+    }
+
+    private String field(String line, int index) {
+        // Returns the field at the given index as a String
+        return line.substring(fieldStarts[index],
+                fieldStarts[index + 1] - SEPARATOR.length());
+    }
+
+    private int intField(String line, int index) {
+        // Parses the field at the given index as an int
+        // without creating a String for it
+        return Integer.parseInt(line, fieldStarts[index],
+                fieldStarts[index + 1] - SEPARATOR.length(), 10);
+    }
+}
@@ -0,0 +1,96 @@
+package enrolmentregister;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+The StudentNameIndex class maps student names to the slots
+they are stored at in a StudentRegister
+* Names are compared ignoring case
+* Keeps every slot of students that share a name
+* Slots of each name are kept in ascending order
+*/
+
+public class StudentNameIndex {
+
+    private final Map<String, Slots> slotsByName = new HashMap<>();
+
+    public static String normalise(String name) {
+        // Returns the key the name is indexed under
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public void add(String name, int slot) {
+        // Adds the slot under the given name
+        if (name == null) {
+            return; // Students without a name cannot be searched for
+        }
+        slotsByName.computeIfAbsent(normalise(name), key -> new Slots())
+                .insert(slot);
+    }
+
+    public void remove(String name, int slot) {
+        // Removes the slot from the given name
+        if (name == null) {
+            return;
+        }
+        String key = normalise(name);
+        Slots slots = slotsByName.get(key);
+        if (slots != null && slots.delete(slot) && slots.size == 0) {
+            slotsByName.remove(key);
+        }
+    }
+
+    public int firstSlot(String name) {
+        // Returns the lowest slot stored under the name or -1
+        // if no student has that name
+        Slots slots = slotsByName.get(normalise(name));
+        return slots == null ? -1 : slots.items[0];
+    }
+
+    public int[] allSlots(String name) {
+        // Returns every slot stored under the name in ascending order
+        Slots slots = slotsByName.get(normalise(name));
+        return slots == null ? new int[0]
+                : Arrays.copyOf(slots.items, slots.size);
+    }
+
+    public void clear() {
+        slotsByName.clear();
+    }
+
+    // Growable list of slots that share a name
+    private static final class Slots {
+        private int[] items = new int[1];
+        private int size;
+
+        void insert(int slot) {
+            // Slots are usually appended in ascending order, so the
+            // search for the insert position starts from the end
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size;
+            while (i > 0 && items[i - 1] > slot) {
+                items[i] = items[i - 1];
+                i--;
+            }
+            items[i] = slot;
+            size++;
+        }
+
+        boolean delete(int slot) {
+            // Removes the slot and returns true if it was found
+            for (int i = 0; i < size; i++) {
+                if (items[i] == slot) {
+                    System.arraycopy(items, i + 1, items, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package enrolmentregister;
+
+import java.util.Date;
+
+/*
+* This class asks the user for the details of a student.
+* Each prompt reads from the InputSource given to the prompter,
+* checks the answer with the validate method of the Student and
+* asks again until the answer is valid or left blank.
+*/
+
+public class StudentPrompter {
+
+    private final InputSource input;
+
+    public StudentPrompter(InputSource input) {
+        this.input = input;
+    }
+
+    public void promptForName(Student student) {
+        // Prompt user to enter the name of the student, 
+        // validate it before setting it as name
+        
+        while (true) {            
+            System.out.print("Enter Student's Full Name: ");
+            String nameInput = input.nextLine().trim();
+            // Validate the name
+            String validatedName = student.validateName(nameInput);
+            
+            // If the validated name is not null set
+            // validated name to the variable name
+            if (validatedName != null){
+                student.setName(validatedName);
+                return;
+            }                     
+        }
+    }
+
+    public void promptForDOB(Student student) {
+        // Prompt user to enter the date of birth of student,
+        // validate it before setting it as dob
+        
+        while (true) {
+            System.out.print("Enter Date of Birth (dd/mm/yyyy): ");
+            String dobInput = input.nextLine().trim();
+            // Validate the date of birth
+            Date validatedDOB = student.validateDOB(dobInput);
+                        
+            if (dobInput.equals("")){
+                // If user leaves the date of birth blank
+                System.out.println("*Left Blank*");
+                return;
+            } else if (validatedDOB != null){
+                // If the validated dob is not null set 
+                // validated dob to the variable dob
+                student.setDOB(validatedDOB);
+                return;
+            }
+        }
+    }
+
+    public void promptForGender(Student student) {
+        // Prompt usr to enter the gender of the student, 
+        // validate it before setting it as gender
+        
+        while (true) {
+            System.out.print("Enter Gender (M/F/Leave Blank): ");
+            String genderInput = input.nextLine().trim();
+            // Validate the gender
+            String validatedGender = student.validateGender(genderInput);
+                       
+            if (genderInput.equals("")) {
+                // If user leaves the gender blank
+                System.out.println("*Left Blank*");    
+                return;
+            } else if (validatedGender != null) {
+                // If the validated gender is not null set
+                // validated gender to the variable gender 
+                student.setGender(validatedGender);
+                return;
+            }
+        }
+    }
+
+    public void promptForStudyMode(Student student) {
+        // Prompt user to enter the study mode of student,
+        // validate it before setting it as studyMode
+        
+        while (true) {
+            System.out.print("Enter Study Mode (FT/PT/Leave Blank): ");
+            String studyModeInput  = input.nextLine().trim();
+            // Validate the study mode
+            String validatedStudyMode = student.validateStudyMode(studyModeInput );
+            
+            if (studyModeInput.equals("")) {
+                // If user leaves the study mode blank
+                System.out.println("*Left Blank*");
+                return;
+            } else if (validatedStudyMode != null) {
+                // If the validated study mode is not null set
+                // validated study mode to the variable study mode 
+                student.setStudyMode(validatedStudyMode);
+                return;
+            }
+        }
+    }
+
+    public void promptForYear(Student student) {
+        // Prompt user to enter the year student is in, 
+        // validate it before setting it as year
+        
+        while (true) {
+            System.out.print("Enter Year (1-4): ");
+            String yearInput = input.nextLine().trim();
+            // Validate the year
+            int validatedYear = student.validateYear(yearInput);
+            
+            if (yearInput.isEmpty()) {
+                // If user leaves the year blank
+                System.out.println("*Left Blank*");
+                return;
+            } else if (validatedYear != 0) {
+                // If the validated year is not 0 set
+                // validated year to the variable year
+                student.setYear(validatedYear);
+                return;
+            }
+        }
+    }
+
+    public void promptForNumModules(Student student) {
+        // Prompt user to enter the number of modules the student took,
+        // validate it before setting it to numModules
+        
+        while (true) {
+            System.out.print("Enter Number of Modules (1-6): ");
+            String modulesInput = input.nextLine().trim();
+            // Validated the number of modules
+            int validatedModules = student.validateNumModules(modulesInput);
+            
+            if (modulesInput.isEmpty()) {
+                // If user leaves the num of modules blank
+                System.out.println("*Left Blank*");
+                return;
+                
+            } else if (validatedModules != 0) {
+                // If the validated num of modules is not 0
+                // validated num of modules to the variable
+                // num of modules
+                student.setNumModules(validatedModules);
+                return;
+            }
+        }
+    }
+}
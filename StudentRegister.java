@@ -0,0 +1,446 @@
+package enrolmentregister;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+The StudentRegister class is the growable store that
+holds the students of a course
+* Keeps the students in a backing array that grows as needed
+* Appends new students in amortised constant time
+* Has no fixed capacity ceiling
+* Removes students by leaving an empty slot (tombstone) that
+  is cleared later by compacting the array in order
+* Exposes the compacted backing array for code that reads Student[]
+* Looks up students by name through a StudentNameIndex
+* Keeps running CourseStatistics of all students and of the
+  students with all their details
+* Counts its changes so StudentColumns built from it can be
+  rebuilt when it changes
+* Gives RegisterSnapshots that share the chunks of slots that did
+  not change since the last snapshot
+*/
+
+public class StudentRegister {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Student[] slots;
+    // end is the next free slot, where the next student is
+    // appended, and tombstones counts the empty slots before it.
+    // Both are updated on every change so the number of students
+    // is known without scanning
+    private int end;
+    private int tombstones;
+
+    // The name index is built on the first lookup and kept in
+    // sync with the register from then on
+    private final StudentNameIndex nameIndex = new StudentNameIndex();
+    private boolean indexBuilt = false;
+
+    // Statistics are updated on every add and remove
+    private final CourseStatistics statistics = new CourseStatistics();
+    private final CourseStatistics validStatistics = new CourseStatistics();
+
+    // Counts the changes made to the students, so views built
+    // from the register can tell when they are out of date
+    private int modCount;
+
+    // The last snapshot, and the chunks of slots changed since it
+    // was taken, which the next snapshot cannot share
+    private RegisterSnapshot lastSnapshot;
+    private final BitSet changedChunks = new BitSet();
+
+    public StudentRegister() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StudentRegister(int initialCapacity) {
+        slots = new Student[Math.max(initialCapacity, 1)];
+        end = 0;
+        tombstones = 0;
+    }
+
+    public static StudentRegister wrap(Student[] array) {
+        // Creates a register that uses the given array as its
+        // backing array. Students are appended after the last
+        // non-null slot of the array
+        StudentRegister register = new StudentRegister(0);
+        if (array == null || array.length == 0) {
+            return register;
+        }
+        register.slots = array;
+
+        int last = array.length - 1;
+        while (last >= 0 && array[last] == null) {
+            last--;
+        }
+        register.end = last + 1;
+
+        // Null slots before the last student count as tombstones
+        for (int i = 0; i < register.end; i++) {
+            if (array[i] == null) {
+                register.tombstones++;
+            } else {
+                register.count(array[i], true);
+            }
+        }
+        return register;
+    }
+
+    public int add(Student student) {
+        // Appends the student after the last used slot, growing
+        // the backing array if it is full. Returns the slot index
+        if (end == slots.length) {
+            grow(end + 1);
+        }
+        slots[end] = student;
+        markChanged(end, end + 1);
+        if (student == null) {
+            tombstones++;
+        } else {
+            count(student, true);
+            if (indexBuilt) {
+                nameIndex.add(student.getName(), end);
+            }
+        }
+        return end++;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        // Grows the backing array so it can hold at least
+        // minCapacity students without resizing again
+        if (minCapacity > slots.length) {
+            grow(minCapacity);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        // Grows the backing array by half its length so that
+        // repeated appends cost amortised O(1)
+        int newCapacity = slots.length + (slots.length >> 1);
+        if (newCapacity < minCapacity) {
+            newCapacity = minCapacity;
+        }
+        slots = Arrays.copyOf(slots, newCapacity);
+    }
+
+    public Student get(int index) {
+        // Returns the student in the given slot or null if the
+        // slot is empty or outside the used range
+        if (index < 0 || index >= end) {
+            return null;
+        }
+        return slots[index];
+    }
+
+    public void set(int index, Student student) {
+        // Replaces the student in a used slot
+        if (index < 0 || index >= end) {
+            throw new IndexOutOfBoundsException("Slot " + index
+                    + " is outside the register");
+        }
+        Student old = slots[index];
+        if (old == null) {
+            tombstones--;
+        } else {
+            count(old, false);
+            if (indexBuilt) {
+                nameIndex.remove(old.getName(), index);
+            }
+        }
+        if (student == null) {
+            tombstones++;
+        } else {
+            count(student, true);
+            if (indexBuilt) {
+                nameIndex.add(student.getName(), index);
+            }
+        }
+        slots[index] = student;
+        markChanged(index, index + 1);
+    }
+
+    public Student remove(int index) {
+        // Removes the student in the given slot by leaving a
+        // tombstone, so no other student moves. The array is
+        // compacted once tombstones make up half of the used slots
+        if (index < 0 || index >= end || slots[index] == null) {
+            return null;
+        }
+        Student removed = slots[index];
+        slots[index] = null;
+        markChanged(index, index + 1);
+        tombstones++;
+        count(removed, false);
+        if (indexBuilt) {
+            nameIndex.remove(removed.getName(), index);
+        }
+        if (tombstones > end / 2) {
+            compact();
+        }
+        return removed;
+    }
+
+    public Student removeFirst(String name) {
+        // Removes the student at the lowest slot with the given
+        // name, ignoring case, and returns it or null if there is
+        // none
+        int slot = index().firstSlot(name);
+        return slot < 0 ? null : remove(slot);
+    }
+
+    public int removeAll(Collection<String> names) {
+        // Removes every student whose name matches one of the given
+        // names, ignoring case, in a single pass over the register.
+        // The remaining students keep their order. Returns the
+        // number of students removed
+        return removeAll(names, student -> { });
+    }
+
+    public int removeAll(Collection<String> names,
+            Consumer<Student> removed) {
+        // Removes students as above, passing each removed student
+        // to the consumer in register order
+        Set<String> keys = new HashSet<>();
+        for (String name : names) {
+            if (name != null) {
+                keys.add(StudentNameIndex.normalise(name));
+            }
+        }
+
+        int before = size();
+        int write = 0;
+        int firstMoved = end;
+        for (int read = 0; read < end; read++) {
+            Student student = slots[read];
+            if (student == null) {
+                firstMoved = Math.min(firstMoved, read);
+                continue; // Skip tombstones
+            }
+            if (student.getName() != null && keys.contains(
+                    StudentNameIndex.normalise(student.getName()))) {
+                count(student, false);
+                removed.accept(student);
+                firstMoved = Math.min(firstMoved, read);
+                continue; // Skip removed students
+            }
+            slots[write++] = student;
+        }
+        markChanged(firstMoved, end);
+        Arrays.fill(slots, write, end, null);
+        end = write;
+        tombstones = 0;
+        indexBuilt = false;
+        return before - size();
+    }
+
+    public void compact() {
+        // Moves every student left over the tombstones, keeping
+        // their order, so that empty slots are only after end
+        if (tombstones == 0) {
+            return;
+        }
+        int write = 0;
+        for (int read = 0; read < end; read++) {
+            if (slots[read] != null) {
+                slots[write++] = slots[read];
+            } else if (write == read) {
+                // Every slot from the first tombstone on may move
+                markChanged(read, end);
+            }
+        }
+        Arrays.fill(slots, write, end, null);
+        end = write;
+        tombstones = 0;
+        // Slots have moved, so the index is rebuilt on the next lookup
+        indexBuilt = false;
+    }
+
+    public int indexOf(String name) {
+        // Returns the lowest slot of a student with the given
+        // name, ignoring case, or -1 if there is none
+        return index().firstSlot(name);
+    }
+
+    public int[] indexesOf(String name) {
+        // Returns the slots of every student with the given name
+        return index().allSlots(name);
+    }
+
+    public void reindex() {
+        // Rebuilds the name index on the next lookup and recounts
+        // the statistics. Needed after the details of a stored
+        // student have been changed
+        indexBuilt = false;
+        recount(statistics, validStatistics);
+        modCount++;
+    }
+
+    private void count(Student student, boolean added) {
+        // Adds the student to or removes it from the statistics
+        modCount++;
+        if (added) {
+            statistics.add(student);
+            if (student.hasAllDetails()) {
+                validStatistics.add(student);
+            }
+        } else {
+            statistics.remove(student);
+            if (student.hasAllDetails()) {
+                validStatistics.remove(student);
+            }
+        }
+    }
+
+    private void recount(CourseStatistics all, CourseStatistics valid) {
+        // Fills the given statistics by counting every student
+        all.reset();
+        valid.reset();
+        for (int i = 0; i < end; i++) {
+            if (slots[i] != null) {
+                all.add(slots[i]);
+                if (slots[i].hasAllDetails()) {
+                    valid.add(slots[i]);
+                }
+            }
+        }
+    }
+
+    public int recomputeFees(FeeTable table) {
+        // Sets the fee of every student from the fee table. A
+        // student whose fee changes is replaced by a copy with the
+        // new fee rather than changed in place, as snapshots hold
+        // the same Student objects and must keep the old fee.
+        // Returns the number of students whose fee changed
+        return recomputeFees(table, 0, end);
+    }
+
+    public int recomputeFees(FeeTable table, int from, int to) {
+        // Reprices the students in the slots from from to to, as
+        // above, and returns the number whose fee changed
+        int numChanged = 0;
+        for (int i = Math.max(from, 0); i < Math.min(to, end); i++) {
+            Student student = slots[i];
+            if (student == null) {
+                continue;
+            }
+            int fee = table.feeOf(student.getStudyMode(),
+                    student.getYear(), student.getNumModules());
+            if (fee != student.getFee()) {
+                set(i, new Student(student.getName(), student.getDOB(),
+                        student.getGender(), student.getStudyMode(),
+                        student.getYear(), student.getNumModules(), fee));
+                numChanged++;
+            }
+        }
+        return numChanged;
+    }
+
+    private void markChanged(int from, int to) {
+        // Records that the slots from from to to have changed since
+        // the last snapshot
+        if (lastSnapshot != null && from < to) {
+            changedChunks.set(RegisterSnapshot.chunkOf(from),
+                    RegisterSnapshot.chunkOf(to - 1) + 1);
+        }
+    }
+
+    public RegisterSnapshot snapshot() {
+        // Returns a snapshot of the register as it is now. If the
+        // register has not changed since the last snapshot, the
+        // same snapshot is returned. Compacting alone does not make
+        // a new snapshot, as the students and their order are the
+        // same
+        if (lastSnapshot == null || lastSnapshot.getVersion() != modCount) {
+            lastSnapshot = RegisterSnapshot.of(slots, end, size(), modCount,
+                    statistics, validStatistics, lastSnapshot,
+                    changedChunks);
+            changedChunks.clear();
+        }
+        return lastSnapshot;
+    }
+
+    public int getModCount() {
+        // Returns a number that changes whenever a student is
+        // added, removed or replaced
+        return modCount;
+    }
+
+    public CourseStatistics getStatistics() {
+        // Returns the running statistics of every student
+        return statistics;
+    }
+
+    public CourseStatistics getValidStatistics() {
+        // Returns the running statistics of the students that
+        // have all their details
+        return validStatistics;
+    }
+
+    public boolean checkStatistics() {
+        // Recounts every student from scratch and returns true if
+        // the running statistics match the recount
+        CourseStatistics all = new CourseStatistics();
+        CourseStatistics valid = new CourseStatistics();
+        recount(all, valid);
+        return statistics.sameCountsAs(all)
+                && validStatistics.sameCountsAs(valid);
+    }
+
+    public void buildIndex() {
+        // Builds the name index now rather than on the next lookup,
+        // so lookups that follow only read the register
+        index();
+    }
+
+    StudentNameIndex builtIndex() {
+        // Returns the name index without ever building it, for
+        // callers that only read the register while other threads
+        // may change it. Fails if the index is not built
+        if (!indexBuilt) {
+            throw new IllegalStateException("Name index is not built");
+        }
+        return nameIndex;
+    }
+
+    private StudentNameIndex index() {
+        // Builds the name index from the used slots if needed
+        if (!indexBuilt) {
+            nameIndex.clear();
+            for (int i = 0; i < end; i++) {
+                if (slots[i] != null) {
+                    nameIndex.add(slots[i].getName(), i);
+                }
+            }
+            indexBuilt = true;
+        }
+        return nameIndex;
+    }
+
+    public int size() {
+        // Returns the number of students in the register
+        return end - tombstones;
+    }
+
+    public int end() {
+        // Returns the next free slot
+        return end;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public Student[] array() {
+        // Returns the backing array after compacting it, so the
+        // students are in order and every slot at or after end()
+        // is null
+        compact();
+        return slots;
+    }
+}
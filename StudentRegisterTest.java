@@ -0,0 +1,225 @@
+import enrolmentregister.FeeTable;
+import enrolmentregister.RegisterSnapshot;
+import enrolmentregister.Student;
+import enrolmentregister.StudentRegister;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class StudentRegisterTest {
+
+    @Test
+    public void testAdd_GrowsPastInitialCapacity() {
+        // This test checks that the register keeps accepting students
+        // after its initial capacity has been used up
+        StudentRegister register = new StudentRegister(2);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, register.add(new Student()));
+        }
+        assertEquals(1000, register.end());
+        assertTrue(register.capacity() >= 1000);
+    }
+
+    @Test
+    public void testWrap_AppendsAfterLastStudent() {
+        // This test checks that a wrapped array keeps its students
+        // and new students are added after the last one
+        Student[] students = new Student[3];
+        students[0] = new Student();
+        students[1] = new Student();
+        StudentRegister register = StudentRegister.wrap(students);
+        
+        assertSame(students, register.array());
+        assertEquals(2, register.end());
+        
+        Student student = new Student();
+        assertEquals(2, register.add(student));
+        assertSame(student, register.get(2));
+    }
+
+    @Test
+    public void testRemove_LeavesTombstoneUntilCompacted() {
+        // This test checks that removing a student leaves its slot
+        // empty without moving the others, and that the array handed
+        // out is compacted in order
+        StudentRegister register = new StudentRegister();
+        Student first = new Student();
+        Student second = new Student();
+        Student third = new Student();
+        register.add(first);
+        register.add(second);
+        register.add(third);
+        
+        assertSame(first, register.remove(0));
+        assertNull(register.get(0));
+        assertSame(second, register.get(1));
+        assertEquals(2, register.size());
+        
+        Student[] array = register.array();
+        assertSame(second, array[0]);
+        assertSame(third, array[1]);
+        assertNull(array[2]);
+        assertEquals(2, register.end());
+    }
+
+    @Test
+    public void testRemoveAll_RemovesNamesInOrder() {
+        // This test checks that bulk removal deletes every student
+        // with a matching name and keeps the rest in order
+        StudentRegister register = new StudentRegister();
+        register.add(new Student("John Doe", null, "M", "FT", 1, 6, 5000));
+        register.add(new Student("Jane Doe", null, "F", "FT", 1, 6, 5000));
+        register.add(new Student("Bob Smith", null, "M", "PT", 1, 2, 1500));
+        register.add(new Student("John Doe", null, "M", "PT", 1, 2, 1500));
+        register.add(new Student("Mary Clay", null, "F", "FT", 2, 6, 5000));
+        
+        int removed = register.removeAll(Arrays.asList("john doe",
+                "BOB SMITH", "Lily Mark"));
+        assertEquals(3, removed);
+        assertEquals(2, register.size());
+        assertEquals("Jane Doe", register.array()[0].getName());
+        assertEquals("Mary Clay", register.array()[1].getName());
+        assertEquals(-1, register.indexOf("John Doe"));
+        assertEquals(1, register.indexOf("Mary Clay"));
+    }
+
+    @Test
+    public void testIndexOf_IgnoresCaseAndKeepsDuplicates() {
+        // This test checks that names are found ignoring case and
+        // that every student sharing a name is indexed
+        StudentRegister register = new StudentRegister();
+        register.add(new Student("John Doe", null, "M", "FT", 1, 6, 5000));
+        register.add(new Student("Jane Doe", null, "F", "FT", 1, 6, 5000));
+        register.add(new Student("John Doe", null, "M", "PT", 1, 2, 1500));
+        
+        assertEquals(0, register.indexOf("JOHN DOE"));
+        assertArrayEquals(new int[] {0, 2}, register.indexesOf("john doe"));
+        assertEquals(-1, register.indexOf("Mary Doe"));
+    }
+
+    @Test
+    public void testIndexOf_FollowsAddAndRemove() {
+        // This test checks that the name index stays in sync when
+        // students are added and removed after the first lookup
+        StudentRegister register = new StudentRegister();
+        register.add(new Student("John Doe", null, "M", "FT", 1, 6, 5000));
+        assertEquals(-1, register.indexOf("Jane Doe"));
+        
+        register.add(new Student("Jane Doe", null, "F", "FT", 1, 6, 5000));
+        assertEquals(1, register.indexOf("Jane Doe"));
+        
+        // Removing a student does not move the others
+        register.remove(0);
+        assertEquals(-1, register.indexOf("John Doe"));
+        assertEquals(1, register.indexOf("Jane Doe"));
+    }
+
+    @Test
+    public void testStatistics_MatchRecountAfterChanges() {
+        // This test checks that the running statistics match a full
+        // recount after many adds, deletes and a bulk removal
+        StudentRegister register = new StudentRegister();
+        Random random = new Random(7);
+        String[] modes = {"FT", "PT", null};
+        String[] genders = {"F", "M", null};
+        
+        for (int i = 0; i < 500; i++) {
+            register.add(new Student("Student " + (char) ('a' + i % 26),
+                    null, genders[random.nextInt(3)],
+                    modes[random.nextInt(3)], random.nextInt(5),
+                    random.nextInt(7), 0));
+            if (random.nextInt(3) == 0) {
+                register.remove(random.nextInt(register.end()));
+            }
+        }
+        assertTrue(register.checkStatistics());
+        
+        register.removeAll(Arrays.asList("Student a", "Student b"));
+        assertTrue(register.checkStatistics());
+        assertEquals(register.size(),
+                register.getStatistics().getNumOfStudents());
+    }
+
+    @Test
+    public void testSnapshot_SharesUnchangedChunks() {
+        // This test checks that a snapshot does not change with the
+        // register, and that the next snapshot copies only the
+        // chunks of slots that changed
+        int chunk = RegisterSnapshot.CHUNK_SIZE;
+        StudentRegister register = new StudentRegister();
+        for (int i = 0; i < 3 * chunk; i++) {
+            register.add(new Student("Student " + i, null, "F", "PT",
+                    1, 1, 750));
+        }
+        RegisterSnapshot first = register.snapshot();
+        assertSame(first, register.snapshot());
+        assertEquals(3 * chunk, first.size());
+
+        Student added = new Student("New Student", null, "M", "FT",
+                1, 1, 5000);
+        register.add(added);
+        register.remove(1);
+        RegisterSnapshot second = register.snapshot();
+        assertEquals(3 * chunk, first.size());
+        assertEquals(3 * chunk, first.getStatistics().getNumOfStudents());
+        assertEquals("Student 1", first.get(1).getName());
+        assertNull(first.get(3 * chunk));
+
+        assertEquals(3 * chunk, second.size());
+        assertNull(second.get(1));
+        assertSame(added, second.get(3 * chunk));
+        assertEquals(1, second.getStatistics().getNumInMode("FT"));
+        assertFalse(second.sharesChunk(first, 0));
+        assertTrue(second.sharesChunk(first, 1));
+        assertTrue(second.sharesChunk(first, 2));
+
+        // Compacting moves every student after the first tombstone,
+        // so no chunk from there on is shared
+        register.compact();
+        register.add(new Student());
+        RegisterSnapshot third = register.snapshot();
+        assertEquals(register.end(), third.end());
+        assertArrayEquals(Arrays.copyOf(register.array(), register.end()),
+                third.toArray());
+        assertFalse(third.sharesChunk(second, 1));
+    }
+
+    @Test
+    public void testSnapshot_KeepsFeesWhenRepriced() {
+        // This test checks that repricing the register leaves the
+        // fees in a snapshot taken before it, and only copies the
+        // chunks of students whose fee changed
+        int chunk = RegisterSnapshot.CHUNK_SIZE;
+        StudentRegister register = new StudentRegister();
+        for (int i = 0; i < 2 * chunk; i++) {
+            register.add(new Student("Student " + i, null, "F",
+                    i < chunk ? "FT" : "PT", 1, 2, i < chunk ? 5000 : 1500));
+        }
+        RegisterSnapshot before = register.snapshot();
+
+        FeeTable doubledPT = FeeTable.compile((mode, year, modules) ->
+                ("PT".equals(mode) ? 2 : 1)
+                        * Student.calcFee(mode, year, modules));
+        assertEquals(chunk, register.recomputeFees(doubledPT));
+        assertEquals(0, register.recomputeFees(doubledPT));
+        RegisterSnapshot after = register.snapshot();
+        for (int i = chunk; i < 2 * chunk; i++) {
+            assertEquals(1500, before.get(i).getFee());
+            assertEquals(3000, after.get(i).getFee());
+            assertEquals(3000, register.get(i).getFee());
+        }
+        assertEquals(5000, after.get(0).getFee());
+        assertTrue(after.sharesChunk(before, 0));
+        assertFalse(after.sharesChunk(before, 1));
+        assertEquals("Student " + chunk, register.get(register.indexOf(
+                "Student " + chunk)).getName());
+    }
+}
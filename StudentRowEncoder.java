@@ -0,0 +1,136 @@
+package enrolmentregister;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+
+/*
+* This class writes students as rows of the Student Details file.
+* Each row is built in a reusable char buffer, with ints turned
+* into digits by hand and dates of birth taken from a small cache,
+* so writing a row creates no objects once the cache is warm.
+* The rows match String.format("%s, %s, %s, %s, %d, %s, %s\n").
+* An encoder is not safe to share between threads.
+*/
+
+public class StudentRowEncoder {
+
+    private static final char[] SEPARATOR = {',', ' '};
+    private static final char[] NULL = {'n', 'u', 'l', 'l'};
+
+    // Direct mapped cache of formatted dates, keyed by the time
+    // of the date in milliseconds
+    private static final int CACHE_SIZE = 4096;
+    private final long[] cachedTimes = new long[CACHE_SIZE];
+    private final char[][] cachedDates = new char[CACHE_SIZE][];
+
+    private char[] buffer = new char[128];
+    private int length;
+
+    public void write(Student student, Writer writer) throws IOException {
+        // Encodes the student as a row and writes it
+        encode(student);
+        writer.write(buffer, 0, length);
+    }
+
+    public String encodeToString(Student student) {
+        // Returns the row of the student as a String
+        encode(student);
+        return new String(buffer, 0, length);
+    }
+
+    private void encode(Student student) {
+        // Builds the row of the student in the buffer
+        length = 0;
+        appendString(student.getName());
+        appendSeparator();
+        appendDate(student.getDOB());
+        appendSeparator();
+        appendString(student.getGender());
+        appendSeparator();
+        appendString(student.getStudyMode());
+        appendSeparator();
+        appendInt(student.getYear());
+        appendSeparator();
+        appendInt(student.getNumModules());
+        appendSeparator();
+        appendInt(student.getFee());
+        ensureSpace(1);
+        buffer[length++] = '\n';
+    }
+
+    private void appendSeparator() {
+        ensureSpace(SEPARATOR.length);
+        buffer[length++] = SEPARATOR[0];
+        buffer[length++] = SEPARATOR[1];
+    }
+
+    private void appendString(String value) {
+        // Copies the characters of the value, or "null" as
+        // String.format would write it
+        if (value == null) {
+            appendChars(NULL);
+            return;
+        }
+        ensureSpace(value.length());
+        value.getChars(0, value.length(), buffer, length);
+        length += value.length();
+    }
+
+    private void appendChars(char[] chars) {
+        ensureSpace(chars.length);
+        System.arraycopy(chars, 0, buffer, length, chars.length);
+        length += chars.length;
+    }
+
+    private void appendInt(int value) {
+        // Writes the decimal digits of the value
+        ensureSpace(11); // Sign and ten digits
+        if (value == Integer.MIN_VALUE) {
+            appendString(Integer.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int numOfDigits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            numOfDigits++;
+        }
+        int position = length + numOfDigits;
+        do {
+            buffer[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        length += numOfDigits;
+    }
+
+    private void appendDate(Date date) {
+        // Writes the date as dd/MM/yyyy using the cache
+        if (date == null) {
+            appendChars(NULL);
+            return;
+        }
+        long time = date.getTime();
+        int slot = (int) ((time ^ (time >>> 32)) * 0x9E3779B9L >>> 20)
+                & (CACHE_SIZE - 1);
+        char[] chars = cachedDates[slot];
+        if (chars == null || cachedTimes[slot] != time) {
+            chars = DateCodec.format(date).toCharArray();
+            cachedDates[slot] = chars;
+            cachedTimes[slot] = time;
+        }
+        appendChars(chars);
+    }
+
+    private void ensureSpace(int extra) {
+        // Grows the buffer if the row does not fit
+        if (length + extra > buffer.length) {
+            char[] bigger = new char[Math.max(buffer.length * 2,
+                    length + extra)];
+            System.arraycopy(buffer, 0, bigger, 0, length);
+            buffer = bigger;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package enrolmentregister;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+* This class reads and writes the binary snapshot of the students.
+* The snapshot holds the same students as the Student Details file
+* but needs no text parsing to load. All numbers are big endian.
+*   Header:  magic, version, number of words, number of students,
+*            then each word of the dictionary
+*   Student: date of birth as an epoch day (int), gender and study
+*            mode as dictionary codes (byte each), year, number of
+*            modules and fee (int each), then the name as a length
+*            (unsigned short) followed by its UTF-8 bytes
+* Missing values are stored as NO_DATE, NO_CODE and NO_NAME.
+*/
+
+public class StudentSnapshot {
+
+    public static final int MAGIC = 0x45525353; // "ERSS"
+    public static final short VERSION = 1;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte NO_CODE = -1;
+    private static final int NO_NAME = 0xFFFF;
+    private static final int MAX_WORDS = Byte.MAX_VALUE;
+    private static final int MAX_NAME_LENGTH = NO_NAME - 1;
+
+    // Direct mapped cache of the time at midnight of each day
+    private static final int CACHE_SIZE = 1 << 16;
+    private final int[] cachedDays = new int[CACHE_SIZE];
+    private final long[] cachedTimes = new long[CACHE_SIZE];
+
+    public StudentSnapshot() {
+        // No day is cached yet
+        Arrays.fill(cachedDays, NO_DATE);
+    }
+
+    public void write(Student[] students, OutputStream output)
+            throws IOException {
+        // Writes every student that has all details, as only they
+        // are saved to the Student Details file
+        List<String> words = new ArrayList<>();
+        Map<String, Byte> codes = new HashMap<>();
+        int numOfStudents = 0;
+        for (Student student : students) {
+            if (student != null && student.hasAllDetails()) {
+                addWord(student.getGender(), words, codes);
+                addWord(student.getStudyMode(), words, codes);
+                numOfStudents++;
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeShort(words.size());
+        data.writeInt(numOfStudents);
+        for (String word : words) {
+            writeName(data, word);
+        }
+
+        for (Student student : students) {
+            if (student == null || !student.hasAllDetails()) {
+                continue;
+            }
+            Date dob = student.getDOB();
+            data.writeInt(dob == null ? NO_DATE
+                    : (int) DateCodec.toLocalDate(dob).toEpochDay());
+            data.writeByte(codeOf(student.getGender(), codes));
+            data.writeByte(codeOf(student.getStudyMode(), codes));
+            data.writeInt(student.getYear());
+            data.writeInt(student.getNumModules());
+            data.writeInt(student.getFee());
+            writeName(data, student.getName());
+        }
+        data.flush();
+    }
+
+    private void addWord(String word, List<String> words,
+            Map<String, Byte> codes) throws IOException {
+        // Adds the word to the dictionary if it is new
+        if (word == null || codes.containsKey(word)) {
+            return;
+        }
+        if (words.size() == MAX_WORDS) {
+            throw new IOException("Too many distinct genders and study "
+                    + "modes for a snapshot");
+        }
+        codes.put(word, (byte) words.size());
+        words.add(word);
+    }
+
+    private byte codeOf(String word, Map<String, Byte> codes) {
+        return word == null ? NO_CODE : codes.get(word);
+    }
+
+    private void writeName(DataOutputStream data, String name)
+            throws IOException {
+        // Writes the length of the name followed by its bytes
+        if (name == null) {
+            data.writeShort(NO_NAME);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_LENGTH) {
+            throw new IOException("Name is too long for a snapshot");
+        }
+        data.writeShort(bytes.length);
+        data.write(bytes);
+    }
+
+    public StudentRegister read(String fileName) throws IOException {
+        // Memory maps the snapshot file and reads its students
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName),
+                StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        }
+    }
+
+    public StudentRegister read(ByteBuffer buffer) throws IOException {
+        // Reads every student in the snapshot into a new register
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("File is not a student snapshot");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version "
+                        + version);
+            }
+            // Large enough for the longest name that can be stored
+            byte[] bytes = new byte[NO_NAME];
+            int numOfWords = buffer.getShort();
+            int numOfStudents = buffer.getInt();
+            if (numOfWords < 0 || numOfWords > MAX_WORDS
+                    || numOfStudents < 0) {
+                throw new IOException("Student snapshot header is corrupt");
+            }
+            String[] words = new String[numOfWords];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = readName(buffer, bytes);
+            }
+
+            StudentRegister register = new StudentRegister(numOfStudents);
+            for (int i = 0; i < numOfStudents; i++) {
+                int epochDay = buffer.getInt();
+                byte gender = buffer.get();
+                byte studyMode = buffer.get();
+                int year = buffer.getInt();
+                int numModules = buffer.getInt();
+                int fee = buffer.getInt();
+                String name = readName(buffer, bytes);
+                register.add(new Student(name, toDate(epochDay),
+                        wordOf(words, gender), wordOf(words, studyMode),
+                        year, numModules, fee));
+            }
+            return register;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Student snapshot is cut short or "
+                    + "corrupt", e);
+        }
+    }
+
+    private Date toDate(int epochDay) {
+        // Returns a new Date at midnight of the day. The time of
+        // recent days is cached, as many students share a birthday
+        if (epochDay == NO_DATE) {
+            return null;
+        }
+        int slot = epochDay & (CACHE_SIZE - 1);
+        if (cachedDays[slot] != epochDay) {
+            cachedDays[slot] = epochDay;
+            cachedTimes[slot] = DateCodec.toDate(LocalDate.ofEpochDay(
+                    epochDay)).getTime();
+        }
+        return new Date(cachedTimes[slot]);
+    }
+
+    private String readName(ByteBuffer buffer, byte[] bytes) {
+        // Reads a length and that many bytes as a UTF-8 string
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NO_NAME) {
+            return null;
+        }
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private String wordOf(String[] words, byte code) {
+        return code == NO_CODE ? null : words[code];
+    }
+}
@@ -1,4 +1,8 @@
+import enrolmentregister.DateCodec;
+import enrolmentregister.InputSource;
 import enrolmentregister.Student;
+import enrolmentregister.StudentPrompter;
+import enrolmentregister.StudentValidator;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -10,6 +14,7 @@ import org.junit.After;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -17,6 +22,9 @@ public class StudentTest{
     
     private Student student;
     private SimpleDateFormat format;
+    // Reads System.in, which each test replaces with its input
+    private final StudentPrompter prompter = new StudentPrompter(
+            InputSource.console());
     
     private final InputStream systemIn = System.in;
     private final PrintStream systemOut = System.out;
@@ -42,7 +50,7 @@ public class StudentTest{
         
         student = new Student();
         // Call the method and check if the name is set correctly
-        student.promptForName();
+        prompter.promptForName(student);
         assertEquals("John Doe", student.getName());
         
         // Set up test user input
@@ -52,7 +60,7 @@ public class StudentTest{
         
         student = new Student();
         // Call the method and check if the name is set correctly
-        student.promptForName();
+        prompter.promptForName(student);
         assertEquals("John Doe", student.getName());
     }
     
@@ -83,7 +91,43 @@ public class StudentTest{
         assertNull(student.validateName("JohnDoe"));
         assertNull(student.validateName("12345"));
     }
-    
+
+    @Test
+    public void testStudentValidator_ErrorCodes() {
+        // Test the validator gives the reason a detail is invalid
+        // and follows the same rules as the validate methods
+        assertEquals(StudentValidator.VALID,
+                StudentValidator.checkName("john doe"));
+        assertEquals(StudentValidator.VALID,
+                StudentValidator.checkName("John Doe  "));
+        assertEquals(StudentValidator.EMPTY,
+                StudentValidator.checkName(""));
+        assertEquals(StudentValidator.NAME_NOT_TWO_PARTS,
+                StudentValidator.checkName("John  Doe"));
+        assertEquals(StudentValidator.NAME_NOT_TWO_PARTS,
+                StudentValidator.checkName(" John Doe"));
+        assertEquals(StudentValidator.NAME_NOT_LETTERS,
+                StudentValidator.checkName("John Doe14"));
+        assertEquals("John Doe", StudentValidator.formatName("john doe "));
+        String name = "Jane Smith";
+        assertSame(name, StudentValidator.formatName(name));
+
+        assertEquals(StudentValidator.VALID,
+                StudentValidator.checkDOB("29/2/2000", 0, 9, 2020));
+        assertEquals(StudentValidator.DOB_NOT_A_DATE,
+                StudentValidator.checkDOB("29/2/2001", 0, 9, 2020));
+        assertEquals(StudentValidator.DOB_OUT_OF_RANGE,
+                StudentValidator.checkDOB("1/1/2010", 0, 8, 2020));
+        assertEquals(StudentValidator.YEAR_INVALID,
+                StudentValidator.checkYear("5", 0, 1));
+        assertEquals(StudentValidator.VALID,
+                StudentValidator.checkNumModules("+6", 0, 2));
+        assertEquals(StudentValidator.GENDER_INVALID,
+                StudentValidator.checkGender("X", 0, 1));
+        assertEquals(StudentValidator.STUDY_MODE_INVALID,
+                StudentValidator.checkStudyMode("FP", 0, 2));
+    }
+
     @Test
     public void testPromptForDOB_ValidDOB() throws ParseException {
         // Set up test user input
@@ -93,7 +137,7 @@ public class StudentTest{
         
         student = new Student();
         // Call the method and check if the date is set correctly
-        student.promptForDOB();
+        prompter.promptForDOB(student);
         Date expected = format.parse(userInput);
         assertEquals(expected, student.getDOB());
     }
@@ -115,6 +159,20 @@ public class StudentTest{
         assertEquals(expectedDate, student.validateDOB(validInput));
     }
 
+    @Test
+    public void testGetDOBStr_MatchesDateFormat() throws ParseException {
+        // Verify the date of birth is written and read the same
+        // way as SimpleDateFormat, including lenient dates
+        String[] dates = {"01/01/2000", "29/02/2004", "31/12/1965",
+            "32/01/2000", "1/6/2001"};
+        for (String date : dates) {
+            Date expectedDate = format.parse(date);
+            assertEquals(expectedDate, DateCodec.parse(date));
+            student.setDOB(expectedDate);
+            assertEquals(format.format(expectedDate), student.getDOBStr());
+        }
+    }
+
     @Test
     public void testEmptyDate() throws ParseException {
         // Verify input is empty, null is returned
@@ -146,7 +204,7 @@ public class StudentTest{
         
         // Call the method and check if the gender is set correctly
         student = new Student();
-        student.promptForGender();
+        prompter.promptForGender(student);
         assertEquals("M", student.getGender());
         
         userInput = "F";
@@ -155,7 +213,7 @@ public class StudentTest{
         
         // Call the method and check if the gender is set correctly
         student = new Student();
-        student.promptForGender();
+        prompter.promptForGender(student);
         assertEquals("F", student.getGender());
     } 
     
@@ -201,7 +259,7 @@ public class StudentTest{
         
         // Call the method and check if the studyMode is set correctly
         student = new Student();
-        student.promptForStudyMode();
+        prompter.promptForStudyMode(student);
         assertEquals("FT", student.getStudyMode());
         
         // Set up test user input
@@ -211,7 +269,7 @@ public class StudentTest{
         
         // Call the method and check if the studyMode is set correctly
         student = new Student();
-        student.promptForStudyMode();
+        prompter.promptForStudyMode(student);
         assertEquals("PT", student.getStudyMode());
     } 
     
@@ -257,7 +315,7 @@ public class StudentTest{
         
         // Call the method and check if the year is set correctly
         student = new Student();
-        student.promptForYear();
+        prompter.promptForYear(student);
         assertEquals(1, student.getYear());
         
         // Set up test user input
@@ -267,7 +325,7 @@ public class StudentTest{
         
         // Call the method and check if the year is set correctly
         student = new Student();
-        student.promptForYear();
+        prompter.promptForYear(student);
         assertEquals(2, student.getYear());
         
         // Set up test user input
@@ -277,7 +335,7 @@ public class StudentTest{
         
         // Call the method and check if the year is set correctly
         student = new Student();
-        student.promptForYear();
+        prompter.promptForYear(student);
         assertEquals(4, student.getYear());       
     }
     
@@ -320,7 +378,7 @@ public class StudentTest{
         
         // Call the method and check if the numModules is set correctly
         student = new Student();
-        student.promptForNumModules();
+        prompter.promptForNumModules(student);
         assertEquals(1, student.getNumModules());
         
         // Set up test user input
@@ -330,7 +388,7 @@ public class StudentTest{
         
         // Call the method and check if the numModules is set correctly
         student = new Student();
-        student.promptForNumModules();
+        prompter.promptForNumModules(student);
         assertEquals(3, student.getNumModules());
         
         // Set up test user input
@@ -340,7 +398,7 @@ public class StudentTest{
         
         // Call the method and check if the numModules is set correctly
         student = new Student();
-        student.promptForNumModules();
+        prompter.promptForNumModules(student);
         assertEquals(6, student.getNumModules());
     }
     
@@ -0,0 +1,246 @@
+package enrolmentregister;
+
+/*
+* This class checks student details without regular expressions.
+* Each check reads the characters of the input between start and
+* end and returns VALID or an error code, and prints nothing, so
+* it can be used for bulk imports as well as by the prompts. No
+* check creates an object, so checking valid input is free of
+* garbage. The rules are those of the validate methods of Student.
+*/
+
+public final class StudentValidator {
+
+    public static final int VALID = 0;
+    public static final int EMPTY = 1;
+    public static final int NAME_NOT_TWO_PARTS = 2;
+    public static final int NAME_NOT_LETTERS = 3;
+    public static final int DOB_NOT_A_DATE = 4;
+    public static final int DOB_OUT_OF_RANGE = 5;
+    public static final int GENDER_INVALID = 6;
+    public static final int STUDY_MODE_INVALID = 7;
+    public static final int YEAR_INVALID = 8;
+    public static final int NUM_MODULES_INVALID = 9;
+
+    private static final String[] DESCRIPTIONS = {
+        "Valid",
+        "Value is empty",
+        "Name is not a first and last name",
+        "Name has characters that are not letters",
+        "Date of birth is not a date in the format dd/mm/yyyy",
+        "Date of birth is not within realistic range",
+        "Gender is not M or F",
+        "Study mode is not FT or PT",
+        "Year is not between 1 and 4",
+        "Number of modules is not between 1 and 6"
+    };
+
+    // Students must be aged between these in the current year
+    public static final int MINIMUM_AGE = 16;
+    public static final int MAXIMUM_AGE = 60;
+
+    private StudentValidator() {
+    }
+
+    public static String describe(int code) {
+        // Returns a message for the error code
+        if (code < 0 || code >= DESCRIPTIONS.length) {
+            return "Unknown error " + code;
+        }
+        return DESCRIPTIONS[code];
+    }
+
+    public static int checkName(CharSequence name) {
+        return checkName(name, 0, name.length());
+    }
+
+    public static int checkName(CharSequence name, int start, int end) {
+        // A name is two parts of ASCII letters with one space between
+        // them. Spaces at the end are ignored, as String.split drops
+        // the empty parts they make
+        end = trimEnd(name, start, end);
+        if (end == start) {
+            return EMPTY;
+        }
+        int space = -1;
+        boolean lettersOnly = true;
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (c == ' ') {
+                if (space >= 0) {
+                    return NAME_NOT_TWO_PARTS;
+                }
+                space = i;
+            } else if (!isAsciiLetter(c)) {
+                lettersOnly = false;
+            }
+        }
+        if (space <= start || space == end - 1) {
+            return NAME_NOT_TWO_PARTS;
+        }
+        return lettersOnly ? VALID : NAME_NOT_LETTERS;
+    }
+
+    public static String formatName(String name) {
+        // Returns a valid name with the first letter of each part
+        // in upper case. The name itself is returned if it is
+        // already in that form
+        int end = trimEnd(name, 0, name.length());
+        int space = name.indexOf(' ');
+        if (end == name.length() && isUpperCase(name.charAt(0))
+                && isUpperCase(name.charAt(space + 1))) {
+            return name;
+        }
+        char[] chars = new char[end];
+        name.getChars(0, end, chars, 0);
+        chars[0] = Character.toUpperCase(chars[0]);
+        chars[space + 1] = Character.toUpperCase(chars[space + 1]);
+        return new String(chars);
+    }
+
+    public static int checkDOB(CharSequence dob, int start, int end,
+            int currentYear) {
+        // A date of birth is d/M/yyyy or dd/MM/yyyy, a real date
+        // and makes the student between MINIMUM_AGE and MAXIMUM_AGE
+        // in the current year
+        if (end == start) {
+            return EMPTY;
+        }
+        int firstSlash = indexOf(dob, '/', start, end);
+        int secondSlash = indexOf(dob, '/', firstSlash + 1, end);
+        if (firstSlash < 0 || secondSlash < 0
+                || firstSlash - start > 2 || secondSlash - firstSlash > 3
+                || end - secondSlash - 1 > 4) {
+            return DOB_NOT_A_DATE;
+        }
+        int day = parseNumber(dob, start, firstSlash);
+        int month = parseNumber(dob, firstSlash + 1, secondSlash);
+        int year = parseNumber(dob, secondSlash + 1, end);
+        if (day < 1 || month < 1 || month > 12 || year < 1
+                || day > daysInMonth(month, year)) {
+            return DOB_NOT_A_DATE;
+        }
+        int age = currentYear - year;
+        if (age < MINIMUM_AGE || age > MAXIMUM_AGE) {
+            return DOB_OUT_OF_RANGE;
+        }
+        return VALID;
+    }
+
+    public static int checkGender(CharSequence gender, int start, int end) {
+        // A gender is M or F in either case
+        if (end == start) {
+            return EMPTY;
+        }
+        if (end - start == 1) {
+            char c = Character.toUpperCase(gender.charAt(start));
+            if (c == 'M' || c == 'F') {
+                return VALID;
+            }
+        }
+        return GENDER_INVALID;
+    }
+
+    public static int checkStudyMode(CharSequence studyMode, int start,
+            int end) {
+        // A study mode is FT or PT in either case
+        if (end == start) {
+            return EMPTY;
+        }
+        if (end - start == 2) {
+            char first = Character.toUpperCase(studyMode.charAt(start));
+            char second = Character.toUpperCase(studyMode.charAt(start + 1));
+            if ((first == 'F' || first == 'P') && second == 'T') {
+                return VALID;
+            }
+        }
+        return STUDY_MODE_INVALID;
+    }
+
+    public static int checkYear(CharSequence year, int start, int end) {
+        // A year is a number from 1 to 4
+        return checkRange(year, start, end, 1, 4, YEAR_INVALID);
+    }
+
+    public static int checkNumModules(CharSequence modules, int start,
+            int end) {
+        // A number of modules is a number from 1 to 6
+        return checkRange(modules, start, end, 1, 6, NUM_MODULES_INVALID);
+    }
+
+    private static int checkRange(CharSequence text, int start, int end,
+            int min, int max, int error) {
+        if (end == start) {
+            return EMPTY;
+        }
+        int value = parseNumber(text, start, end);
+        return value < min || value > max ? error : VALID;
+    }
+
+    public static int parseNumber(CharSequence text, int start, int end) {
+        // Reads a number the way Integer.parseInt does, with an
+        // optional plus sign. Returns -1 if the text is not a
+        // number or is negative, and Integer.MAX_VALUE if it is too
+        // large, as every check only accepts small numbers
+        if (start < end && text.charAt(start) == '+') {
+            start++;
+        }
+        if (start == end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0) {
+                return -1;
+            }
+            if (value > (Integer.MAX_VALUE - digit) / 10) {
+                value = Integer.MAX_VALUE;
+            } else {
+                value = value * 10 + digit;
+            }
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int month, int year) {
+        switch (month) {
+            case 2:
+                boolean leap = year % 4 == 0
+                        && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int indexOf(CharSequence text, char c, int start,
+            int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isUpperCase(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+}